@@ -0,0 +1,50 @@
+package com.example.auth.benchmarks;
+
+import com.example.auth.jwt.Hs256JwtCodec;
+import com.example.auth.jwt.JjwtCodec;
+import com.example.auth.jwt.JwtCodec;
+import com.example.auth.metrics.AuthMetrics;
+import com.example.auth.models.enums.UserRole;
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.models.principals.UserPrincipal;
+import com.example.auth.services.impl.SigningKeyService;
+import com.example.auth.services.impl.TokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+final class Fixtures {
+
+    static final String SECRET = "c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0";
+    static final String ACCESS_TOKEN_EXPIRATION = "900000";
+
+    private Fixtures() {
+    }
+
+    static AuthMetrics metrics() {
+        return new AuthMetrics(new SimpleMeterRegistry());
+    }
+
+    static TokenService tokenService(boolean stateless, String engine) {
+        TokenService tokenService = new TokenService(metrics(), codec(engine));
+        ReflectionTestUtils.setField(tokenService, "accessTokenExpirationTime", ACCESS_TOKEN_EXPIRATION);
+        ReflectionTestUtils.setField(tokenService, "refreshTokenExpirationTime", "86400000");
+        ReflectionTestUtils.setField(tokenService, "stateless", stateless);
+        ReflectionTestUtils.setField(tokenService, "generationRevocation", false);
+        return tokenService;
+    }
+
+    static JwtCodec codec(String engine) {
+        SigningKeyService signingKeyService = new SigningKeyService(SECRET, "", "", "PKCS12", "");
+        return switch (engine) {
+            case "jjwt" -> new JjwtCodec(signingKeyService);
+            case "hs256" -> new Hs256JwtCodec(signingKeyService);
+            default -> throw new IllegalArgumentException("Unknown token engine " + engine);
+        };
+    }
+
+    static UserPrincipal user() {
+        return new UserPrincipal(42, "benchmark.user",
+                "{bcrypt}$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3hJz1xv1Jd5d7Y5v3Q9Zc6e",
+                UserRole.ORDINARY, UserStatus.ACTIVE, 0, 0);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.auth.benchmarks;
+
+import com.example.auth.cache.RevocationIndex;
+import com.example.auth.config.JwtAuthenticationFilter;
+import com.example.auth.models.principals.UserPrincipal;
+import com.example.auth.services.impl.TokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One authenticated request through the filter, with the user lookup served from memory
+ * as it is when the principal cache is warm.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    @Param({"false", "true"})
+    public boolean stateless;
+
+    @Param({"jjwt", "hs256"})
+    public String engine;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletResponse response;
+    private String authorizationHeader;
+
+    @Setup
+    public void setup() {
+        TokenService tokenService = Fixtures.tokenService(stateless, engine);
+        UserPrincipal user = Fixtures.user();
+        RevocationIndex revocationIndex = new RevocationIndex(null, null, 500_000, 900_000);
+        filter = new JwtAuthenticationFilter(tokenService, username -> user, revocationIndex, Fixtures.metrics());
+        response = new MockHttpServletResponse();
+        authorizationHeader = "Bearer " + tokenService.generateToken(user);
+    }
+
+    @Benchmark
+    public Authentication doFilterInternal() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/users/me");
+        request.addHeader("Authorization", authorizationHeader);
+        filter.doFilter(request, response, NO_OP_CHAIN);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+}
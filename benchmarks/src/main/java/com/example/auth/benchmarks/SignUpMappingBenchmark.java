@@ -0,0 +1,51 @@
+package com.example.auth.benchmarks;
+
+import com.example.auth.models.entities.UserEntity;
+import com.example.auth.models.requests.SignUpRequest;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignUpMappingBenchmark {
+
+    private ModelMapper modelMapper;
+    private SignUpRequest request;
+
+    @Setup
+    public void setup() {
+        modelMapper = new ModelMapper();
+        modelMapper.getConfiguration().setAmbiguityIgnored(true);
+        request = new SignUpRequest();
+        request.setName("Benchmark User");
+        request.setUsername("benchmark.user");
+        request.setEmail("benchmark.user@example.com");
+        request.setPassword("Benchmark@Password1");
+        request.setConfirmPassword("Benchmark@Password1");
+    }
+
+    @Benchmark
+    public UserEntity modelMapper() {
+        return modelMapper.map(request, UserEntity.class);
+    }
+
+    @Benchmark
+    public UserEntity explicitMapping() {
+        return UserEntity.of(request);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.auth.benchmarks;
+
+import com.example.auth.models.principals.UserPrincipal;
+import com.example.auth.services.impl.TokenService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.Key;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenServiceBenchmark {
+
+    @Param({"jjwt", "hs256"})
+    public String engine;
+
+    private TokenService tokenService;
+    private UserPrincipal user;
+    private String token;
+
+    @Setup
+    public void setup() {
+        tokenService = Fixtures.tokenService(false, engine);
+        user = Fixtures.user();
+        token = tokenService.generateToken(user);
+    }
+
+    @Benchmark
+    public String buildToken() {
+        return tokenService.buildToken(new HashMap<>(), user, Fixtures.ACCESS_TOKEN_EXPIRATION);
+    }
+
+    @Benchmark
+    public Object verifyToken() {
+        return tokenService.verifyToken(token);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return tokenService.isTokenValid(token, user);
+    }
+
+    /**
+     * The validation path before tokens were parsed once: key decoding, a new parser and a
+     * full signature check for the subject, the expiry and the filter's own subject lookup.
+     */
+    @Benchmark
+    public boolean isTokenValidRebuildingParser() {
+        String username = parseWithNewParser(token).getSubject();
+        return parseWithNewParser(token).getSubject().equals(username)
+                && parseWithNewParser(token).getExpiration().getTime() > System.currentTimeMillis();
+    }
+
+    private static Claims parseWithNewParser(String token) {
+        Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(Fixtures.SECRET));
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
@@ -0,0 +1,57 @@
+-- Brings a PostgreSQL database created for the original schema up to the current entities.
+-- Run once, before the first start of the new version; every step can be re-run.
+-- Pass the refresh token lifetime in milliseconds, the longest a token can live:
+--   psql -v max_token_lifetime_ms="$AUTH_REFRESH_TOKEN_EXPIRATION" -f db/upgrade-postgresql.sql
+
+\if :{?max_token_lifetime_ms}
+\else
+\echo 'max_token_lifetime_ms is not set; pass it with -v max_token_lifetime_ms=<milliseconds>'
+\quit
+\endif
+
+BEGIN;
+
+-- User: counters checked against the cver and gen token claims.
+ALTER TABLE "User" ADD COLUMN IF NOT EXISTS credential_version integer NOT NULL DEFAULT 0;
+ALTER TABLE "User" ADD COLUMN IF NOT EXISTS token_generation integer NOT NULL DEFAULT 0;
+
+-- Token: ids come from a pooled sequence (allocationSize 50) instead of an identity column.
+ALTER TABLE "Token" ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE "Token" ALTER COLUMN id DROP DEFAULT;
+CREATE SEQUENCE IF NOT EXISTS token_id_seq INCREMENT 50;
+SELECT setval('token_id_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM "Token") + 50,
+                                       (SELECT last_value FROM token_id_seq)));
+
+-- Token: rows are keyed by the token's jti instead of the compact JWT in name. Tokens issued
+-- before the jti claim get the id TokenIdUtil.of(token) derives for them, a name-based
+-- (version 3) UUID of the token, so they can still be revoked until they expire.
+ALTER TABLE "Token" ADD COLUMN IF NOT EXISTS token_id uuid;
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'Token' AND column_name = 'name') THEN
+        UPDATE "Token"
+        SET token_id = (substr(h, 1, 12) || '3' || substr(h, 14, 3)
+                        || to_hex(8 | (('x' || substr(h, 17, 1))::bit(4)::int & 3))
+                        || substr(h, 18, 15))::uuid
+        FROM (SELECT id AS token_pk, md5(name) AS h FROM "Token") digests
+        WHERE id = token_pk AND token_id IS NULL;
+    END IF;
+END $$;
+ALTER TABLE "Token" ALTER COLUMN token_id SET NOT NULL;
+ALTER TABLE "Token" DROP COLUMN IF EXISTS name;
+
+-- Token: expiry for the revocation index, refresh token families and the purge. Existing
+-- rows carry no exp, so they get the latest expiry any of them can have, and the purge
+-- deletes them once that has passed.
+ALTER TABLE "Token" ADD COLUMN IF NOT EXISTS expires_at timestamp(6) with time zone;
+UPDATE "Token"
+SET expires_at = now() + :max_token_lifetime_ms * interval '1 millisecond'
+WHERE expires_at IS NULL;
+ALTER TABLE "Token" ADD COLUMN IF NOT EXISTS family_id uuid;
+
+CREATE UNIQUE INDEX IF NOT EXISTS token_token_id_idx ON "Token" (token_id);
+CREATE INDEX IF NOT EXISTS token_user_id_idx ON "Token" (user_id);
+CREATE INDEX IF NOT EXISTS token_family_id_idx ON "Token" (family_id);
+
+COMMIT;
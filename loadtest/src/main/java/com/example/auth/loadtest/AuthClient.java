@@ -0,0 +1,104 @@
+package com.example.auth.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Blocking client for the auth endpoints. Every request carries {@code X-Forwarded-Proto: https},
+ * so the embedded instance can serve plain HTTP behind the channel security check.
+ */
+final class AuthClient {
+
+    static final String PASSWORD = "LoadTest-Passw0rd!";
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUrl;
+    private final Duration requestTimeout;
+
+    AuthClient(String baseUrl, Duration requestTimeout) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestTimeout = requestTimeout;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(requestTimeout)
+                .build();
+    }
+
+    Response signUp(String username) throws IOException, InterruptedException {
+        return post("/api/v1/auth/signup", null, Map.of(
+                "name", username,
+                "username", username,
+                "email", username + "@loadtest.example.com",
+                "password", PASSWORD,
+                "confirmPassword", PASSWORD));
+    }
+
+    Response signIn(String username) throws IOException, InterruptedException {
+        return post("/api/v1/auth/signin", null, Map.of("username", username, "password", PASSWORD));
+    }
+
+    Response refresh(String refreshToken) throws IOException, InterruptedException {
+        return post("/api/v1/auth/refresh-token", refreshToken, null);
+    }
+
+    Response logout(String accessToken) throws IOException, InterruptedException {
+        return post("/api/v1/auth/logout", accessToken, null);
+    }
+
+    Response me(String accessToken) throws IOException, InterruptedException {
+        return send(request("/api/v1/users/me", accessToken).GET().build());
+    }
+
+    private Response post(String path, String bearer, Map<String, String> body) throws IOException, InterruptedException {
+        HttpRequest.BodyPublisher publisher = body != null
+                ? HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body))
+                : HttpRequest.BodyPublishers.noBody();
+        return send(request(path, bearer)
+                .header("Content-Type", "application/json")
+                .POST(publisher)
+                .build());
+    }
+
+    private HttpRequest.Builder request(String path, String bearer) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(requestTimeout)
+                .header("X-Forwarded-Proto", "https");
+        if (bearer != null) {
+            builder.header("Authorization", "Bearer " + bearer);
+        }
+        return builder;
+    }
+
+    private Response send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        JsonNode body = null;
+        if (response.statusCode() == 200 && response.body().length > 0) {
+            body = objectMapper.readTree(response.body());
+        }
+        return new Response(response.statusCode(), body);
+    }
+
+    record Response(int status, JsonNode body) {
+
+        boolean isOk() {
+            return status == 200;
+        }
+
+        boolean isRejected() {
+            return status == 401 || status == 403;
+        }
+
+        String text(String field) {
+            return body != null && body.hasNonNull(field) ? body.get(field).asText() : null;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.auth.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the application jar given with {@code --launch} in its own JVM and times it from
+ * process start to the first successful sign-in, the delay a new instance adds when it is
+ * started under load. The jar reads the usual environment (DATASOURCE_URL etc.); a first,
+ * unmeasured start signs up the user that the measured start signs in with. The output of
+ * both starts goes to {@code application.log} in {@code --out}.
+ */
+final class ColdStart implements AutoCloseable {
+
+    private static final String USERNAME = "lt-cold-start";
+    private static final long POLL_INTERVAL_MILLIS = 10;
+
+    private final LoadTestOptions options;
+    private final int port;
+    private final AuthClient client;
+    private final Path log;
+    private Process process;
+    private double firstSignInMs;
+
+    private ColdStart(LoadTestOptions options, int port) {
+        this.options = options;
+        this.port = port;
+        this.client = new AuthClient(baseUrl(), options.getRequestTimeout());
+        this.log = options.getOut().resolve("application.log");
+    }
+
+    static ColdStart launch(LoadTestOptions options) throws IOException, InterruptedException {
+        ColdStart coldStart = new ColdStart(options, freePort());
+        Files.createDirectories(options.getOut());
+        Files.deleteIfExists(coldStart.log);
+        try {
+            coldStart.seed();
+            coldStart.measure();
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            coldStart.close();
+            throw e;
+        }
+        return coldStart;
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    double firstSignInMs() {
+        return firstSignInMs;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (process == null) {
+            return;
+        }
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+        process = null;
+    }
+
+    /**
+     * Signs up the cold start user unless a previous run against the same database already did.
+     */
+    private void seed() throws IOException, InterruptedException {
+        System.out.println("Starting " + options.getLaunch() + " to sign up " + USERNAME);
+        start();
+        if (!signIn(false).isOk()) {
+            client.signUp(USERNAME);
+            if (!client.signIn(USERNAME).isOk()) {
+                throw new IllegalStateException("Cannot sign up or sign in " + USERNAME + ", see " + log);
+            }
+        }
+        close();
+    }
+
+    private void measure() throws IOException, InterruptedException {
+        System.out.println("Starting " + options.getLaunch() + " and waiting for the first sign-in");
+        long start = System.nanoTime();
+        start();
+        signIn(true);
+        firstSignInMs = Math.round((System.nanoTime() - start) / 1e3) / 1e3;
+        System.out.println("First sign-in after " + firstSignInMs + " ms");
+    }
+
+    /**
+     * Signs in until the instance answers, or with {@code untilOk} until the sign-in succeeds,
+     * failing once the process exits or the startup timeout has passed.
+     */
+    private AuthClient.Response signIn(boolean untilOk) throws InterruptedException {
+        long deadline = System.nanoTime() + options.getStartupTimeout().toNanos();
+        while (true) {
+            try {
+                AuthClient.Response response = client.signIn(USERNAME);
+                if (response.isOk() || !untilOk) {
+                    return response;
+                }
+            } catch (IOException e) {
+                // Not listening yet.
+            }
+            if (!process.isAlive()) {
+                throw new IllegalStateException("The application exited with status " + process.exitValue()
+                        + ", see " + log);
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("No successful sign-in within " + options.getStartupTimeout()
+                        + ", see " + log);
+            }
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        }
+    }
+
+    /**
+     * Serves plain HTTP on {@link #port} behind the forwarded-proto check, without sign-in
+     * throttling, as the embedded instance does; {@code --app.} properties take precedence.
+     */
+    private void start() throws IOException {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("SERVER_PORT", String.valueOf(port));
+        properties.put("MANAGEMENT_SERVER_PORT", "0");
+        properties.put("server.ssl.enabled", "false");
+        properties.put("server.forward-headers-strategy", "native");
+        properties.put("LOGIN_THROTTLE_ENABLED", "false");
+        properties.putAll(options.getAppProperties());
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(options.getLaunchJvmArgs());
+        command.add("-jar");
+        command.add(options.getLaunch().toString());
+        properties.forEach((name, value) -> command.add("--" + name + "=" + value));
+        process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log.toFile()))
+                .start();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.auth.loadtest;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Open-model load: arrivals are scheduled at the configured rate whatever the response times,
+ * and each latency is measured from the arrival's intended start, so time spent queued for a
+ * free worker while the service is slow is part of the result rather than hidden by it.
+ */
+final class LoadGenerator {
+
+    private final LoadTestOptions options;
+    private final AuthClient client;
+    private final Results results = new Results();
+    private final BlockingQueue<Session> idleSessions = new LinkedBlockingQueue<>();
+    private final AtomicLong userSequence = new AtomicLong();
+    private final String usernamePrefix = "lt" + Long.toString(System.currentTimeMillis() % 1_000_000_000L, 36) + "-";
+    private final ThreadPoolExecutor workers;
+
+    LoadGenerator(LoadTestOptions options, AuthClient client) {
+        this.options = options;
+        this.client = client;
+        this.workers = new ThreadPoolExecutor(options.getConcurrency(), options.getConcurrency(),
+                0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+
+    Results results() {
+        return results;
+    }
+
+    /**
+     * Signs up and signs in the initial users; they are not part of the measurement.
+     */
+    void seed() throws InterruptedException {
+        List<Future<Outcome>> signUps = new ArrayList<>();
+        for (int i = 0; i < options.getUsers(); i++) {
+            signUps.add(workers.submit(this::signUp));
+        }
+        int failed = 0;
+        for (Future<Outcome> signUp : signUps) {
+            try {
+                if (signUp.get() != Outcome.OK) {
+                    failed++;
+                }
+            } catch (Exception e) {
+                failed++;
+            }
+        }
+        if (idleSessions.isEmpty()) {
+            throw new IllegalStateException("No user could be signed up, is the service reachable?");
+        }
+        if (failed > 0) {
+            System.err.println(failed + " of " + options.getUsers() + " seed sign-ups failed");
+        }
+    }
+
+    Summary run() throws InterruptedException {
+        String startedAt = Instant.now().toString();
+        SplittableRandom random = new SplittableRandom();
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.getRate();
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureStart = start + options.getWarmup().toNanos();
+        long end = measureStart + options.getDuration().toNanos();
+        long arrivals = 0;
+        int maxBacklog = 0;
+        long intended = start;
+        for (long n = 0; ; n++) {
+            intended = options.isPoisson()
+                    ? intended + (long) (-Math.log(1 - random.nextDouble()) * intervalNanos)
+                    : start + (long) (n * intervalNanos);
+            if (intended >= end) {
+                break;
+            }
+            waitUntil(intended);
+            Operation operation = options.getMix().next(random);
+            long arrival = intended;
+            boolean measured = arrival >= measureStart;
+            workers.execute(() -> execute(operation, arrival, measured));
+            if (measured) {
+                arrivals++;
+                maxBacklog = Math.max(maxBacklog, workers.getQueue().size());
+            }
+        }
+        workers.shutdown();
+        workers.awaitTermination(options.getRequestTimeout().toNanos() * 2 + TimeUnit.SECONDS.toNanos(30), TimeUnit.NANOSECONDS);
+        double seconds = options.getDuration().toNanos() / 1e9;
+        return new Summary(startedAt, config(), null, seconds, arrivals, maxBacklog, results.summarize(seconds));
+    }
+
+    private void execute(Operation operation, long intended, boolean measured) {
+        Outcome outcome;
+        long start = intended;
+        if (operation == Operation.SIGN_UP) {
+            outcome = signUp();
+        } else {
+            Session session = takeSession();
+            try {
+                boolean signInFirst = !session.isSignedIn()
+                        || operation == Operation.REVOKED_ACCESS_CHECK && session.revokedAccessToken() == null;
+                if (signInFirst && operation != Operation.SIGN_IN) {
+                    timed(Operation.SIGN_IN, measured, () -> signIn(session));
+                    start = System.nanoTime();
+                }
+                if (operation == Operation.REFRESH_REUSE_CHECK && session.isSignedIn() && session.rotatedRefreshToken() == null) {
+                    timed(Operation.REFRESH, measured, () -> refresh(session));
+                    start = System.nanoTime();
+                }
+                outcome = execute(operation, session);
+            } finally {
+                idleSessions.add(session);
+            }
+        }
+        if (measured) {
+            results.record(operation, outcome, System.nanoTime() - start);
+        }
+    }
+
+    private Outcome execute(Operation operation, Session session) {
+        if (!session.isSignedIn() && operation != Operation.SIGN_IN
+                || operation == Operation.REVOKED_ACCESS_CHECK && session.revokedAccessToken() == null
+                || operation == Operation.REFRESH_REUSE_CHECK && session.rotatedRefreshToken() == null) {
+            return Outcome.ERROR;
+        }
+        return switch (operation) {
+            case SIGN_IN -> signIn(session);
+            case REFRESH -> refresh(session);
+            case AUTHENTICATED -> me(session);
+            case LOGOUT -> logout(session);
+            case REVOKED_ACCESS_CHECK -> revokedAccessCheck(session);
+            case REFRESH_REUSE_CHECK -> refreshReuseCheck(session);
+            case SIGN_UP -> throw new IllegalArgumentException();
+        };
+    }
+
+    private Outcome signUp() {
+        String username = usernamePrefix + userSequence.incrementAndGet();
+        return call(() -> {
+            AuthClient.Response response = client.signUp(username);
+            if (!response.isOk()) {
+                return Outcome.ERROR;
+            }
+            Session session = new Session(username);
+            session.signedIn(response);
+            idleSessions.add(session);
+            return Outcome.OK;
+        });
+    }
+
+    private Outcome signIn(Session session) {
+        return call(() -> {
+            AuthClient.Response response = client.signIn(session.username());
+            if (!response.isOk()) {
+                return Outcome.ERROR;
+            }
+            session.signedIn(response);
+            return Outcome.OK;
+        });
+    }
+
+    private Outcome refresh(Session session) {
+        return call(() -> {
+            AuthClient.Response response = client.refresh(session.refreshToken());
+            if (!response.isOk()) {
+                session.signedOut();
+                return Outcome.ERROR;
+            }
+            session.refreshed(response);
+            return Outcome.OK;
+        });
+    }
+
+    private Outcome me(Session session) {
+        return call(() -> {
+            AuthClient.Response response = client.me(session.accessToken());
+            if (!response.isOk()) {
+                session.signedOut();
+                return Outcome.ERROR;
+            }
+            return session.username().equals(response.text("username")) ? Outcome.OK : Outcome.VIOLATION;
+        });
+    }
+
+    private Outcome logout(Session session) {
+        return call(() -> {
+            AuthClient.Response response = client.logout(session.accessToken());
+            if (!response.isOk()) {
+                return Outcome.ERROR;
+            }
+            session.loggedOut();
+            return Outcome.OK;
+        });
+    }
+
+    private Outcome revokedAccessCheck(Session session) {
+        return call(() -> {
+            AuthClient.Response response = client.me(session.revokedAccessToken());
+            if (response.isOk()) {
+                return Outcome.VIOLATION;
+            }
+            return response.isRejected() ? Outcome.OK : Outcome.ERROR;
+        });
+    }
+
+    private Outcome refreshReuseCheck(Session session) {
+        return call(() -> {
+            AuthClient.Response response = client.refresh(session.rotatedRefreshToken());
+            session.familyRevoked();
+            if (response.isOk()) {
+                return Outcome.VIOLATION;
+            }
+            return response.isRejected() ? Outcome.OK : Outcome.ERROR;
+        });
+    }
+
+    private void timed(Operation operation, boolean measured, Supplier<Outcome> call) {
+        long start = System.nanoTime();
+        Outcome outcome = call.get();
+        if (measured) {
+            results.record(operation, outcome, System.nanoTime() - start);
+        }
+    }
+
+    private Session takeSession() {
+        try {
+            return idleSessions.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Outcome call(Request request) {
+        try {
+            return request.send();
+        } catch (IOException e) {
+            return Outcome.ERROR;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Outcome.ERROR;
+        }
+    }
+
+    private static void waitUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private Map<String, Object> config() {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("rate", options.getRate());
+        config.put("arrival", options.arrival());
+        config.put("duration", options.getDuration().toString());
+        config.put("warmup", options.getWarmup().toString());
+        config.put("concurrency", options.getConcurrency());
+        config.put("users", options.getUsers());
+        config.put("mix", options.getMix().toString());
+        if (options.getLaunch() != null) {
+            config.put("baseUrl", "launched");
+            config.put("launch", options.getLaunch().toString());
+            config.put("launchJvmArgs", options.getLaunchJvmArgs());
+        } else {
+            config.put("baseUrl", options.getBaseUrl() != null ? options.getBaseUrl() : "embedded");
+        }
+        config.put("appProperties", options.getAppProperties());
+        return config;
+    }
+
+    @FunctionalInterface
+    private interface Request {
+
+        Outcome send() throws IOException, InterruptedException;
+    }
+}
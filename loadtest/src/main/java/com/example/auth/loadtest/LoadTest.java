@@ -0,0 +1,159 @@
+package com.example.auth.loadtest;
+
+import com.example.auth.AuthApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts the application on an in-memory H2 database (unless {@code --base-url} is given, or
+ * {@code --launch} names a jar to start and time, see {@link ColdStart}), signs up the
+ * initial users, drives the configured mix and writes {@code summary.json},
+ * {@code summary.csv} and the raw HDR histograms ({@code latency.hlog}) to {@code --out}.
+ * Exits with status 1 when any correctness check failed.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadTestOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        ColdStart launched = options.getLaunch() != null ? ColdStart.launch(options) : null;
+        ConfigurableApplicationContext application = options.getBaseUrl() == null && launched == null
+                ? startApplication(options)
+                : null;
+        long violations;
+        try {
+            String baseUrl;
+            if (launched != null) {
+                baseUrl = launched.baseUrl();
+            } else if (application != null) {
+                baseUrl = "http://localhost:" + ((WebServerApplicationContext) application).getWebServer().getPort();
+            } else {
+                baseUrl = options.getBaseUrl();
+            }
+            LoadGenerator generator = new LoadGenerator(options, new AuthClient(baseUrl, options.getRequestTimeout()));
+            System.out.println("Signing up " + options.getUsers() + " users against " + baseUrl);
+            generator.seed();
+            System.out.println("Running " + options.getMix() + " at " + options.getRate() + "/s (" + options.arrival()
+                    + ") for " + options.getDuration() + " after " + options.getWarmup() + " warm-up");
+            Summary summary = generator.run();
+            if (launched != null) {
+                summary = summary.withFirstSignInMs(launched.firstSignInMs());
+            }
+            write(options.getOut(), summary, generator.results());
+            print(summary, System.out);
+            violations = generator.results().violations();
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+            if (launched != null) {
+                launched.close();
+            }
+        }
+        System.exit(violations > 0 ? 1 : 0);
+    }
+
+    /**
+     * Properties are passed as command line arguments so that they take precedence over any
+     * environment variables of the same name.
+     */
+    private static ConfigurableApplicationContext startApplication(LoadTestOptions options) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("APPLICATION_NAME", "auth-loadtest");
+        properties.put("DATASOURCE_URL", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        properties.put("DATASOURCE_USERNAME", "sa");
+        properties.put("DATASOURCE_PASSWORD", "");
+        properties.put("DATASOURCE_DRIVER", "org.h2.Driver");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create");
+        properties.put("AUTH_TOKEN", randomSecret());
+        properties.put("AUTH_ACCESS_TOKEN_EXPIRATION", "900000");
+        properties.put("AUTH_REFRESH_TOKEN_EXPIRATION", "86400000");
+        properties.put("SERVER_PORT", "0");
+        properties.put("MANAGEMENT_SERVER_PORT", "0");
+        properties.put("server.ssl.enabled", "false");
+        properties.put("server.forward-headers-strategy", "native");
+        properties.put("SERVER_KEY_STORE", "");
+        properties.put("SERVER_KEY_STORE_PASSWORD", "");
+        properties.put("SERVER_KEY_STORE_TYPE", "PKCS12");
+        properties.put("SERVER_KEY_ALIAS", "");
+        properties.put("LOGIN_THROTTLE_ENABLED", "false");
+        properties.put("PASSWORD_BCRYPT_STRENGTH", "10");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        // The controllers log every rejection the correctness checks provoke as an error.
+        properties.put("logging.level.com.example.auth.controllers", "OFF");
+        properties.putAll(options.getAppProperties());
+        List<String> args = new ArrayList<>();
+        properties.forEach((name, value) -> args.add("--" + name + "=" + value));
+        return new SpringApplicationBuilder(AuthApplication.class).run(args.toArray(new String[0]));
+    }
+
+    private static String randomSecret() {
+        byte[] secret = new byte[64];
+        new SecureRandom().nextBytes(secret);
+        return Base64.getEncoder().encodeToString(secret);
+    }
+
+    private static void write(Path directory, Summary summary, Results results) throws IOException {
+        Files.createDirectories(directory);
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(directory.resolve("summary.json").toFile(), summary);
+        List<String> lines = new ArrayList<>();
+        lines.add(Summary.CSV_HEADER);
+        summary.operations().forEach(operation -> lines.add(operation.toCsv()));
+        Files.write(directory.resolve("summary.csv"), lines);
+        try (PrintStream log = new PrintStream(directory.resolve("latency.hlog").toFile())) {
+            HistogramLogWriter writer = new HistogramLogWriter(log);
+            writer.outputComment("Latency in microseconds, one tagged histogram per operation");
+            writer.outputLogFormatVersion();
+            writer.outputLegend();
+            for (Operation operation : Operation.values()) {
+                Histogram histogram = results.histogram(operation).copy();
+                if (histogram.getTotalCount() > 0) {
+                    histogram.setTag(operation.key());
+                    writer.outputIntervalHistogram(histogram);
+                }
+            }
+        }
+        System.out.println("Results written to " + directory.toAbsolutePath());
+    }
+
+    private static void print(Summary summary, PrintStream out) {
+        out.printf("%-10s %9s %7s %10s %10s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "errors", "violations", "ops/s", "p50 ms", "p95 ms", "p99 ms", "p999 ms", "max ms");
+        for (Summary.OperationSummary operation : summary.operations()) {
+            Summary.Latency latency = operation.latencyMs();
+            out.printf("%-10s %9d %7d %10d %10.1f %9.3f %9.3f %9.3f %9.3f %9.3f%n",
+                    operation.operation(), operation.count(), operation.errors(), operation.violations(),
+                    operation.throughput(), latency.p50(), latency.p95(), latency.p99(), latency.p999(), latency.max());
+        }
+        out.println("Arrivals: " + summary.arrivals() + ", largest backlog: " + summary.maxBacklog());
+        if (summary.firstSignInMs() != null) {
+            out.println("First sign-in after start: " + summary.firstSignInMs() + " ms");
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.auth.loadtest;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line options, all given as {@code --name=value}. Options starting with {@code --app.}
+ * are passed to the embedded or launched application as properties, e.g.
+ * {@code --app.AUTH_ACCESS_TOKEN_STATELESS=true}.
+ */
+@Getter
+final class LoadTestOptions {
+
+    static final String USAGE = """
+            Usage: java -jar loadtest/target/loadtest.jar [--name=value ...]
+
+              --rate=200            arrivals per second (open model, independent of response times)
+              --arrival=constant    constant or poisson inter-arrival times
+              --duration=PT60S      measured run time
+              --warmup=PT10S        run time before measurement starts; not recorded
+              --concurrency=64      worker threads issuing requests
+              --users=200           users signed up and signed in before the run
+              --mix=me=70,signin=8,refresh=8,logout=4,signup=2,revoked=4,reuse=4
+              --request-timeout=PT10S
+              --base-url=           run against a running instance instead of an embedded one
+              --launch=             start this application jar, time its first sign-in, then run against it
+              --launch-jvm-args=    JVM options for the launched jar, e.g. -XX:SharedArchiveFile=...
+              --startup-timeout=PT120S
+              --out=target/loadtest-results
+              --app.<property>=     application property for the embedded instance
+            """;
+
+    private double rate = 200;
+    private boolean poisson;
+    private Duration duration = Duration.ofSeconds(60);
+    private Duration warmup = Duration.ofSeconds(10);
+    private int concurrency = 64;
+    private int users = 200;
+    private Mix mix = Mix.parse("me=70,signin=8,refresh=8,logout=4,signup=2,revoked=4,reuse=4");
+    private Duration requestTimeout = Duration.ofSeconds(10);
+    private String baseUrl;
+    private Path launch;
+    private List<String> launchJvmArgs = List.of();
+    private Duration startupTimeout = Duration.ofSeconds(120);
+    private Path out = Path.of("target", "loadtest-results");
+    private final Map<String, String> appProperties = new LinkedHashMap<>();
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Invalid option '" + arg + "', expected --name=value");
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            if (name.startsWith("app.")) {
+                options.appProperties.put(name.substring(4), value);
+                continue;
+            }
+            switch (name) {
+                case "rate" -> options.rate = Double.parseDouble(value);
+                case "arrival" -> options.poisson = switch (value) {
+                    case "constant" -> false;
+                    case "poisson" -> true;
+                    default -> throw new IllegalArgumentException("Unknown arrival '" + value + "'");
+                };
+                case "duration" -> options.duration = Duration.parse(value);
+                case "warmup" -> options.warmup = Duration.parse(value);
+                case "concurrency" -> options.concurrency = Integer.parseInt(value);
+                case "users" -> options.users = Integer.parseInt(value);
+                case "mix" -> options.mix = Mix.parse(value);
+                case "request-timeout" -> options.requestTimeout = Duration.parse(value);
+                case "base-url" -> options.baseUrl = value.isBlank() ? null : value;
+                case "launch" -> options.launch = value.isBlank() ? null : Path.of(value);
+                case "launch-jvm-args" -> options.launchJvmArgs = value.isBlank() ? List.of() : List.of(value.trim().split("\\s+"));
+                case "startup-timeout" -> options.startupTimeout = Duration.parse(value);
+                case "out" -> options.out = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+        if (options.rate <= 0 || options.concurrency <= 0 || options.users <= 0) {
+            throw new IllegalArgumentException("rate, concurrency and users must be positive");
+        }
+        if (options.baseUrl != null && options.launch != null) {
+            throw new IllegalArgumentException("--base-url and --launch cannot be combined");
+        }
+        return options;
+    }
+
+    String arrival() {
+        return poisson ? "poisson" : "constant";
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.auth.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * One arrival in the workload mix. The two check operations assert that tokens the service has
+ * already revoked or rotated are rejected while the rest of the load is running.
+ */
+enum Operation {
+
+    SIGN_UP("signup"),
+    SIGN_IN("signin"),
+    REFRESH("refresh"),
+    AUTHENTICATED("me"),
+    LOGOUT("logout"),
+    REVOKED_ACCESS_CHECK("revoked"),
+    REFRESH_REUSE_CHECK("reuse");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    String key() {
+        return key;
+    }
+
+    static Operation of(String key) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation '" + key + "', expected one of "
+                        + Arrays.stream(values()).map(Operation::key).toList()));
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.auth.loadtest;
+
+enum Outcome {
+
+    /** The service answered as expected. */
+    OK,
+
+    /** The request failed, timed out or got an unexpected status. */
+    ERROR,
+
+    /** The service accepted something it must reject, or answered for the wrong user. */
+    VIOLATION
+}
@@ -0,0 +1,71 @@
+package com.example.auth.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and outcome counts per operation, recorded in microseconds.
+ */
+final class Results {
+
+    private final Map<Operation, OperationResults> operations = new EnumMap<>(Operation.class);
+
+    Results() {
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new OperationResults());
+        }
+    }
+
+    void record(Operation operation, Outcome outcome, long latencyNanos) {
+        OperationResults results = operations.get(operation);
+        results.histogram.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        switch (outcome) {
+            case ERROR -> results.errors.increment();
+            case VIOLATION -> results.violations.increment();
+            default -> {
+            }
+        }
+    }
+
+    Histogram histogram(Operation operation) {
+        return operations.get(operation).histogram;
+    }
+
+    long violations() {
+        return operations.values().stream().mapToLong(results -> results.violations.sum()).sum();
+    }
+
+    List<Summary.OperationSummary> summarize(double seconds) {
+        List<Summary.OperationSummary> summaries = new ArrayList<>();
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        long totalViolations = 0;
+        for (Map.Entry<Operation, OperationResults> entry : operations.entrySet()) {
+            OperationResults results = entry.getValue();
+            if (results.histogram.getTotalCount() == 0) {
+                continue;
+            }
+            total.add(results.histogram);
+            totalErrors += results.errors.sum();
+            totalViolations += results.violations.sum();
+            summaries.add(Summary.OperationSummary.of(entry.getKey().key(), results.histogram,
+                    results.errors.sum(), results.violations.sum(), seconds));
+        }
+        summaries.add(Summary.OperationSummary.of("total", total, totalErrors, totalViolations, seconds));
+        return summaries;
+    }
+
+    private static final class OperationResults {
+
+        private final Histogram histogram = new ConcurrentHistogram(3);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder violations = new LongAdder();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.auth.loadtest;
+
+/**
+ * A user and the tokens it currently holds. A session is used by one worker at a time; the
+ * tokens it gave up stay around so the check operations can replay them.
+ */
+final class Session {
+
+    private final String username;
+    private String accessToken;
+    private String refreshToken;
+    private String revokedAccessToken;
+    private String rotatedRefreshToken;
+
+    Session(String username) {
+        this.username = username;
+    }
+
+    String username() {
+        return username;
+    }
+
+    String accessToken() {
+        return accessToken;
+    }
+
+    String refreshToken() {
+        return refreshToken;
+    }
+
+    String revokedAccessToken() {
+        return revokedAccessToken;
+    }
+
+    String rotatedRefreshToken() {
+        return rotatedRefreshToken;
+    }
+
+    boolean isSignedIn() {
+        return accessToken != null;
+    }
+
+    /**
+     * Sign-in revokes every token the user held before.
+     */
+    void signedIn(AuthClient.Response response) {
+        if (accessToken != null) {
+            revokedAccessToken = accessToken;
+        }
+        accessToken = response.text("accessToken");
+        refreshToken = response.text("refreshToken");
+    }
+
+    /**
+     * Refresh revokes the previous access token and consumes the refresh token.
+     */
+    void refreshed(AuthClient.Response response) {
+        revokedAccessToken = accessToken;
+        rotatedRefreshToken = refreshToken;
+        accessToken = response.text("accessToken");
+        refreshToken = response.text("refreshToken");
+    }
+
+    void loggedOut() {
+        revokedAccessToken = accessToken;
+        signedOut();
+    }
+
+    /**
+     * Replaying a rotated refresh token revokes the whole family, including the current tokens.
+     */
+    void familyRevoked() {
+        rotatedRefreshToken = null;
+        signedOut();
+    }
+
+    void signedOut() {
+        accessToken = null;
+        refreshToken = null;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.auth.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The machine-readable result of one run, written as {@code summary.json} and {@code summary.csv}.
+ * {@code firstSignInMs} is the cold start time with {@code --launch} and {@code null} otherwise.
+ */
+record Summary(String startedAt,
+               Map<String, Object> config,
+               Double firstSignInMs,
+               double measuredSeconds,
+               long arrivals,
+               int maxBacklog,
+               List<OperationSummary> operations) {
+
+    static final String CSV_HEADER = "operation,count,errors,violations,throughput,p50_ms,p95_ms,p99_ms,p999_ms,max_ms,mean_ms";
+
+    Summary withFirstSignInMs(double firstSignInMs) {
+        return new Summary(startedAt, config, firstSignInMs, measuredSeconds, arrivals, maxBacklog, operations);
+    }
+
+    record OperationSummary(String operation,
+                            long count,
+                            long errors,
+                            long violations,
+                            double throughput,
+                            Latency latencyMs) {
+
+        static OperationSummary of(String operation, Histogram histogram, long errors, long violations, double seconds) {
+            return new OperationSummary(operation, histogram.getTotalCount(), errors, violations,
+                    round(histogram.getTotalCount() / seconds), Latency.of(histogram));
+        }
+
+        String toCsv() {
+            return String.join(",", operation, String.valueOf(count), String.valueOf(errors), String.valueOf(violations),
+                    String.valueOf(throughput), String.valueOf(latencyMs.p50()), String.valueOf(latencyMs.p95()),
+                    String.valueOf(latencyMs.p99()), String.valueOf(latencyMs.p999()), String.valueOf(latencyMs.max()),
+                    String.valueOf(latencyMs.mean()));
+        }
+    }
+
+    record Latency(double p50, double p95, double p99, double p999, double max, double mean) {
+
+        static Latency of(Histogram histogram) {
+            return new Latency(millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(95)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()), round(histogram.getMean() / 1000));
+        }
+
+        private static double millis(long micros) {
+            return round(micros / 1000.0);
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
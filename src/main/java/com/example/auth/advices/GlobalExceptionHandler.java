@@ -1,9 +1,11 @@
 package com.example.auth.advices;
 
 import com.example.auth.exceptions.HttpException;
+import com.example.auth.exceptions.RetryableHttpException;
 import com.example.auth.util.LoggingUtil;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -45,6 +47,13 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(e.getData(), e.getStatus());
     }
 
+    @ExceptionHandler(RetryableHttpException.class)
+    public final ResponseEntity<Object> handleRetryableHttpException(RetryableHttpException e, HandlerMethod handlerMethod) {
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getData());
+    }
+
 
     @ExceptionHandler(Exception.class)
     public final ResponseEntity<Object> handleException(Exception e, HandlerMethod handlerMethod) {
@@ -0,0 +1,194 @@
+package com.example.auth.cache;
+
+import com.example.auth.models.principals.UserPrincipal;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+@Component
+public class PrincipalCache {
+
+    private final AsyncCache<String, UserPrincipal> cache;
+    private final Cache<String, Boolean> recentlyInvalidated;
+    private final long replicaMaxLagNanos;
+    private volatile long allInvalidatedAt;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public PrincipalCache(@Value("${authorization.principal-cache.maximum-size}") long maximumSize,
+                          @Value("${authorization.principal-cache.time-to-live}") Duration timeToLive,
+                          @Value("${authorization.datasource.replica.max-lag}") Duration replicaMaxLag) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .buildAsync();
+        this.recentlyInvalidated = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(replicaMaxLag)
+                .build();
+        this.replicaMaxLagNanos = replicaMaxLag.toNanos();
+        this.allInvalidatedAt = System.nanoTime() - replicaMaxLagNanos;
+    }
+
+    /**
+     * Concurrent callers for the same username share a single invocation of the loader.
+     * The loader runs on the calling thread outside any map lock, so a blocking JDBC call
+     * never pins a virtual thread to its carrier.
+     */
+    public UserPrincipal get(String username, Function<String, UserPrincipal> loader) {
+        CompletableFuture<UserPrincipal> loading = new CompletableFuture<>();
+        CompletableFuture<UserPrincipal> existing = cache.asMap().putIfAbsent(username, loading);
+        if (existing != null) {
+            hits.increment();
+            return join(existing);
+        }
+        misses.increment();
+        try {
+            UserPrincipal principal = loader.apply(username);
+            loading.complete(principal);
+            return principal;
+        } catch (RuntimeException e) {
+            cache.asMap().remove(username, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Bulk form of {@link #get}: the usernames not cached are passed to the loader together,
+     * and those it returns no principal for are left out of the result and not cached.
+     * Loads of this call are completed before waiting on loads by other callers, so two
+     * overlapping bulk loads cannot wait on each other.
+     */
+    public Map<String, UserPrincipal> getAll(Collection<String> usernames,
+                                             Function<Set<String>, Map<String, UserPrincipal>> loader) {
+        Map<String, CompletableFuture<UserPrincipal>> loading = new HashMap<>();
+        Map<String, CompletableFuture<UserPrincipal>> existing = new HashMap<>();
+        for (String username : usernames) {
+            if (loading.containsKey(username) || existing.containsKey(username)) {
+                continue;
+            }
+            CompletableFuture<UserPrincipal> future = new CompletableFuture<>();
+            CompletableFuture<UserPrincipal> cached = cache.asMap().putIfAbsent(username, future);
+            if (cached != null) {
+                hits.increment();
+                existing.put(username, cached);
+            } else {
+                misses.increment();
+                loading.put(username, future);
+            }
+        }
+        Map<String, UserPrincipal> principals = new HashMap<>();
+        if (!loading.isEmpty()) {
+            Map<String, UserPrincipal> loaded;
+            try {
+                loaded = loader.apply(loading.keySet());
+            } catch (RuntimeException e) {
+                loading.forEach((username, future) -> {
+                    cache.asMap().remove(username, future);
+                    future.completeExceptionally(e);
+                });
+                throw e;
+            }
+            loading.forEach((username, future) -> {
+                UserPrincipal principal = loaded.get(username);
+                if (principal != null) {
+                    future.complete(principal);
+                    principals.put(username, principal);
+                } else {
+                    cache.asMap().remove(username, future);
+                    future.completeExceptionally(new UsernameNotFoundException("User " + username + " not found"));
+                }
+            });
+        }
+        existing.forEach((username, future) -> {
+            try {
+                principals.put(username, join(future));
+            } catch (UsernameNotFoundException e) {
+                // Not an active user; left out like the misses of this call.
+            }
+        });
+        return principals;
+    }
+
+    /**
+     * Evicts immediately and, inside a transaction, once more after commit so that a
+     * concurrent request cannot re-cache the row as it was before the update.
+     */
+    public void evict(String username) {
+        invalidate(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(username);
+                }
+            });
+        }
+    }
+
+    public void evictAll() {
+        allInvalidatedAt = System.nanoTime();
+        cache.synchronous().invalidateAll();
+        invalidations.increment();
+    }
+
+    /**
+     * Whether the principal was evicted within the replica lag window, in which case a
+     * replica may still serve the row as it was before the change.
+     */
+    public boolean isRecentlyInvalidated(String username) {
+        return System.nanoTime() - allInvalidatedAt < replicaMaxLagNanos
+                || recentlyInvalidated.getIfPresent(username) != null;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return cache.synchronous().stats().evictionCount();
+    }
+
+    public long invalidationCount() {
+        return invalidations.sum();
+    }
+
+    private void invalidate(String username) {
+        recentlyInvalidated.put(username, Boolean.TRUE);
+        cache.synchronous().invalidate(username);
+        invalidations.increment();
+    }
+
+    private static UserPrincipal join(CompletableFuture<UserPrincipal> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
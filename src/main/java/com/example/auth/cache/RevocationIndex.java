@@ -0,0 +1,124 @@
+package com.example.auth.cache;
+
+import com.example.auth.models.tokens.TokenClaims;
+import com.example.auth.models.tokens.VerifiedToken;
+import com.example.auth.repositories.TokenRepository;
+import com.example.auth.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked token ids, each kept until the token's own expiry. Most lookups are for tokens
+ * that were never revoked and are answered by the Bloom filter without touching the map.
+ */
+@Component
+public class RevocationIndex {
+
+    private static final Log log = LogFactory.getLog(RevocationIndex.class);
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final TokenRepository tokenRepository;
+    private final UserRepository userRepository;
+    private final long expectedTokens;
+    private final long fallbackLifetime;
+    private final ConcurrentHashMap<UUID, Long> revoked = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Integer> userTokenGenerations = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloomFilter;
+
+    public RevocationIndex(TokenRepository tokenRepository,
+                           UserRepository userRepository,
+                           @Value("${authorization.revocation.expected-tokens}") long expectedTokens,
+                           @Value("${authorization.access-token.expiration-time}") long fallbackLifetime) {
+        this.tokenRepository = tokenRepository;
+        this.userRepository = userRepository;
+        this.expectedTokens = expectedTokens;
+        this.fallbackLifetime = fallbackLifetime;
+        this.bloomFilter = new BloomFilter(expectedTokens, FALSE_POSITIVE_RATE);
+    }
+
+    @PostConstruct
+    public void load() {
+        long start = System.currentTimeMillis();
+        tokenRepository.findAllRevokedTokensExpiringAfter(Instant.ofEpochMilli(start))
+                .forEach(token -> revoke(token.getTokenId(), token.getExpiresAt()));
+        userRepository.findAllTokenGenerations()
+                .forEach(user -> revokeUserTokens(user.getId(), user.getTokenGeneration()));
+        log.info("Loaded " + revoked.size() + " revoked tokens and " + userTokenGenerations.size()
+                + " user token generations in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        return isRevoked(token.getId()) || isGenerationRevoked(token);
+    }
+
+    public boolean isRevoked(UUID tokenId) {
+        if (!bloomFilter.mightContain(tokenId.getMostSignificantBits(), tokenId.getLeastSignificantBits())) {
+            return false;
+        }
+        Long expiresAt = revoked.get(tokenId);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    public void revoke(UUID tokenId, Date expiresAt) {
+        revoke(tokenId, expiresAt == null ? null : expiresAt.toInstant());
+    }
+
+    /**
+     * Rows written before expiry was stored have no {@code expiresAt}; they are kept for
+     * one access token lifetime, which is the longest they can still be in use.
+     */
+    public void revoke(UUID tokenId, Instant expiresAt) {
+        long expiresAtMillis = expiresAt != null
+                ? expiresAt.toEpochMilli()
+                : System.currentTimeMillis() + fallbackLifetime;
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        revoked.put(tokenId, expiresAtMillis);
+        bloomFilter.put(tokenId.getMostSignificantBits(), tokenId.getLeastSignificantBits());
+    }
+
+    /**
+     * Revokes every token of the user whose {@code gen} claim is below {@code tokenGeneration}.
+     */
+    public void revokeUserTokens(Integer userId, int tokenGeneration) {
+        userTokenGenerations.merge(userId, tokenGeneration, Math::max);
+    }
+
+    private boolean isGenerationRevoked(VerifiedToken token) {
+        Integer tokenGeneration = token.getClaim(TokenClaims.TOKEN_GENERATION, Integer.class);
+        if (tokenGeneration == null) {
+            return false;
+        }
+        Integer current = userTokenGenerations.get(token.getClaim(TokenClaims.USER_ID, Integer.class));
+        return current != null && tokenGeneration < current;
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    /**
+     * Drops expired entries and rebuilds the Bloom filter, which cannot forget keys on its own.
+     * The second pass after the swap picks up ids revoked into the old filter while the new
+     * one was being filled.
+     */
+    @Scheduled(fixedDelayString = "${authorization.revocation.sweep-interval}")
+    void sweep() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        BloomFilter next = new BloomFilter(Math.max(expectedTokens, 2L * revoked.size()), FALSE_POSITIVE_RATE);
+        revoked.keySet().forEach(id -> next.put(id.getMostSignificantBits(), id.getLeastSignificantBits()));
+        bloomFilter = next;
+        revoked.keySet().forEach(id -> next.put(id.getMostSignificantBits(), id.getLeastSignificantBits()));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.auth.cache;
+
+import com.example.auth.invalidation.InvalidationBus;
+import com.example.auth.invalidation.InvalidationEvent;
+import com.example.auth.models.entities.UserEntity;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class UserEntityListener {
+
+    private final PrincipalCache principalCache;
+    // Resolved lazily: both depend on repositories, which need the entity manager factory
+    // that is still being built when this listener is created.
+    private final ObjectProvider<UsernameFilter> usernameFilter;
+    private final ObjectProvider<InvalidationBus> invalidationBus;
+
+    @PostPersist
+    void onCreate(UserEntity user) {
+        usernameFilter.getObject().onUserChanged(user.getUsername(), user.getStatus());
+        invalidationBus.getObject().publish(InvalidationEvent.userChanged(user.getUsername(), user.getStatus()));
+    }
+
+    @PostUpdate
+    @PostRemove
+    void onChange(UserEntity user) {
+        principalCache.evict(user.getUsername());
+        usernameFilter.getObject().onUserChanged(user.getUsername(), user.getStatus());
+        invalidationBus.getObject().publish(InvalidationEvent.userChanged(user.getUsername(), user.getStatus()));
+    }
+}
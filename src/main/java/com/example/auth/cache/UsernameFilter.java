@@ -0,0 +1,166 @@
+package com.example.auth.cache;
+
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.repositories.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers "this username cannot belong to an active user" without a query. A Bloom filter
+ * of active usernames rejects names that were never active, and a short-lived negative
+ * cache covers names that pass the filter but are missing or inactive in the database.
+ */
+@Component
+public class UsernameFilter {
+
+    private static final Log log = LogFactory.getLog(UsernameFilter.class);
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final long expectedUsers;
+    private final long replicaMaxLagNanos;
+    private final Cache<String, Boolean> inactive;
+    private final ConcurrentHashMap<String, Long> recentActivations = new ConcurrentHashMap<>();
+    private final LongAdder rejections = new LongAdder();
+    private volatile BloomFilter bloomFilter;
+
+    public UsernameFilter(UserRepository userRepository,
+                          @Value("${authorization.username-filter.enabled}") boolean enabled,
+                          @Value("${authorization.username-filter.expected-users}") long expectedUsers,
+                          @Value("${authorization.username-filter.negative-cache.maximum-size}") long maximumSize,
+                          @Value("${authorization.username-filter.negative-cache.time-to-live}") Duration timeToLive,
+                          @Value("${authorization.datasource.replica.max-lag}") Duration replicaMaxLag) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.expectedUsers = expectedUsers;
+        this.replicaMaxLagNanos = replicaMaxLag.toNanos();
+        this.inactive = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .build();
+    }
+
+    @PostConstruct
+    void load() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public boolean mightBeActive(String username) {
+        if (!enabled) {
+            return true;
+        }
+        if (!bloomFilter.mightContain(high(username), username.hashCode())
+                || inactive.getIfPresent(username) != null) {
+            rejections.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public void recordInactive(String username) {
+        if (enabled) {
+            inactive.put(username, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Called for every persisted or updated user. Active users are added to the filter, and
+     * any negative entry is dropped, immediately and once more after commit: a concurrent
+     * lookup cannot re-cache the row as it was before the change, and a rebuild whose query
+     * ran before the commit still picks up the activation.
+     */
+    public void onUserChanged(String username, UserStatus status) {
+        if (!enabled) {
+            return;
+        }
+        boolean active = status == UserStatus.ACTIVE;
+        if (active) {
+            activate(username);
+        }
+        inactive.invalidate(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    if (active) {
+                        activate(username);
+                    }
+                    inactive.invalidate(username);
+                }
+            });
+        }
+    }
+
+    /**
+     * Rebuilds the filter and drops every negative entry, for when user changes may have been
+     * missed.
+     */
+    public void reset() {
+        if (!enabled) {
+            return;
+        }
+        rebuild();
+        inactive.invalidateAll();
+    }
+
+    public long rejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * Rebuilds the filter from the database, dropping users that are no longer active. Users
+     * activated too recently for the query to see are added from {@code recentActivations},
+     * once more after the swap to pick up those activated into the old filter meanwhile, and
+     * are forgotten once a query that started a replica lag after their commit has run.
+     */
+    @Scheduled(fixedDelayString = "${authorization.username-filter.rebuild-interval}",
+            initialDelayString = "${authorization.username-filter.rebuild-interval}")
+    void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long queryStart = System.nanoTime();
+        List<String> usernames = userRepository.findAllUsernamesByStatus(UserStatus.ACTIVE);
+        BloomFilter next = new BloomFilter(Math.max(expectedUsers, 2L * usernames.size()), FALSE_POSITIVE_RATE);
+        usernames.forEach(username -> next.put(high(username), username.hashCode()));
+        recentActivations.keySet().forEach(username -> next.put(high(username), username.hashCode()));
+        bloomFilter = next;
+        recentActivations.keySet().forEach(username -> next.put(high(username), username.hashCode()));
+        recentActivations.values().removeIf(activatedAt -> activatedAt - (queryStart - replicaMaxLagNanos) < 0);
+        log.info("Loaded " + usernames.size() + " active usernames in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Records the activation before writing to the filter, so a concurrent rebuild that
+     * swaps in its filter after this write still sees it in its second pass.
+     */
+    private void activate(String username) {
+        recentActivations.put(username, System.nanoTime());
+        bloomFilter.put(high(username), username.hashCode());
+    }
+
+    private static long high(String username) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < username.length(); i++) {
+            hash = (hash ^ username.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+}
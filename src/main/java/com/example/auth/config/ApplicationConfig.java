@@ -1,54 +1,111 @@
 package com.example.auth.config;
 
-import com.example.auth.models.enums.UserStatus;
+import com.example.auth.metrics.AuthMetrics;
+import com.example.auth.models.principals.UserPrincipal;
 import com.example.auth.repositories.UserRepository;
+import com.example.auth.services.IPrincipalService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 @Configuration
 @RequiredArgsConstructor
 public class ApplicationConfig {
     private final UserRepository userRepository;
+    private final IPrincipalService principalService;
+    private final AuthMetrics metrics;
 
-    @Bean
-    public UserDetailsService userDetailsService() {
-        return username -> userRepository.findByUsernameAndStatus(username, UserStatus.ACTIVE)
-                .orElseThrow(() -> new UsernameNotFoundException("User " + username + " not found"));
-    }
+    @Value("${authorization.password.hashing.threads}")
+    private int hashingThreads;
 
-    @Bean
-    public ModelMapper modelMapper() {
-        ModelMapper modelMapper = new ModelMapper();
-        modelMapper.getConfiguration().setAmbiguityIgnored(true);
-        return modelMapper;
-    }
+    @Value("${authorization.password.hashing.queue-capacity}")
+    private int hashingQueueCapacity;
+
+    @Value("${authorization.password.hashing.retry-after}")
+    private long hashingRetryAfter;
+
+    @Value("${authorization.password.encoding-id}")
+    private String passwordEncodingId;
+
+    @Value("${authorization.password.bcrypt.strength}")
+    private int bcryptStrength;
+
+    @Value("${authorization.password.bcrypt.min-strength}")
+    private int bcryptMinStrength;
+
+    @Value("${authorization.password.bcrypt.target-duration}")
+    private Duration bcryptTargetDuration;
 
     @Bean
     public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
-        authProvider.setUserDetailsService(userDetailsService());
+        authProvider.setUserDetailsService(principalService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService());
         return authProvider;
     }
 
+    @Bean
+    public UserDetailsPasswordService userDetailsPasswordService() {
+        return (user, newPassword) -> userRepository.findByUsername(user.getUsername())
+                .map(entity -> {
+                    entity.setPassword(newPassword);
+                    return UserPrincipal.of(userRepository.save(entity));
+                })
+                .orElseThrow(() -> new UsernameNotFoundException("User " + user.getUsername() + " not found"));
+    }
+
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration config) throws Exception {
         return config.getAuthenticationManager();
     }
 
+    @Bean
+    public ThreadPoolTaskExecutor passwordHashingExecutor() {
+        int threads = hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(hashingQueueCapacity);
+        executor.setThreadNamePrefix("password-hashing-");
+        return executor;
+    }
+
+    /**
+     * Hashes are stored with an {@code {id}} prefix; legacy unprefixed hashes are verified as
+     * BCrypt. After a successful sign-in DaoAuthenticationProvider re-encodes any hash whose
+     * algorithm differs from the configured one or whose BCrypt cost is below the current
+     * strength, and saves it through {@link #userDetailsPasswordService()}.
+     */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int strength = bcryptStrength > 0
+                ? bcryptStrength
+                : PasswordEncoderCalibrator.calibrateBCryptStrength(bcryptTargetDuration, bcryptMinStrength);
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("pbkdf2@SpringSecurity_v5_8", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        DelegatingPasswordEncoder delegatingEncoder = new DelegatingPasswordEncoder(passwordEncodingId, encoders);
+        delegatingEncoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return new OffloadingPasswordEncoder(delegatingEncoder, passwordHashingExecutor(), hashingRetryAfter,
+                metrics.getPasswordEncode(), metrics.getPasswordMatch());
     }
 
 }
@@ -1,7 +1,14 @@
 package com.example.auth.config;
 
+import com.example.auth.cache.RevocationIndex;
+import com.example.auth.invalidation.InvalidationBus;
+import com.example.auth.invalidation.InvalidationEvent;
+import com.example.auth.metrics.AuthMetrics;
 import com.example.auth.models.entities.TokenEntity;
+import com.example.auth.models.tokens.VerifiedToken;
 import com.example.auth.repositories.TokenRepository;
+import com.example.auth.services.impl.TokenService;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -15,16 +22,29 @@ import org.springframework.stereotype.Service;
 public class CustomLogoutHandler implements LogoutHandler {
 
     private final TokenRepository tokenRepository;
+    private final TokenService tokenService;
+    private final RevocationIndex revocationIndex;
+    private final AuthMetrics metrics;
+    private final InvalidationBus invalidationBus;
 
     @Override
     public void logout(HttpServletRequest request, HttpServletResponse response, Authentication authentication) {
         final String authHeader = request.getHeader("Authorization");
         final String token;
+        final VerifiedToken verifiedToken;
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             return;
         }
         token = authHeader.substring(7);
-        TokenEntity storedToken = tokenRepository.findByToken(token).orElse(null);
+        try {
+            verifiedToken = tokenService.verifyToken(token);
+        } catch (JwtException e) {
+            return;
+        }
+        revocationIndex.revoke(verifiedToken.getId(), verifiedToken.getExpiration());
+        invalidationBus.publish(InvalidationEvent.tokenRevoked(verifiedToken.getId(), verifiedToken.getExpiration().toInstant()));
+        metrics.getLogout().increment();
+        TokenEntity storedToken = tokenRepository.findByTokenId(verifiedToken.getId()).orElse(null);
         if (storedToken != null) {
             storedToken.setExpired(true);
             storedToken.setRevoked(true);
@@ -0,0 +1,81 @@
+package com.example.auth.config;
+
+import com.example.auth.datasource.ReadWriteRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The application data source routes read-only transactions to the replicas listed in
+ * {@code authorization.datasource.replica.urls} and all other work to the primary pool,
+ * which is still configured through {@code spring.datasource.*}.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Value("${authorization.datasource.replica.urls}")
+    private String[] replicaUrls;
+
+    @Value("${authorization.datasource.replica.username}")
+    private String replicaUsername;
+
+    @Value("${authorization.datasource.replica.password}")
+    private String replicaPassword;
+
+    @Value("${authorization.datasource.replica.maximum-pool-size}")
+    private int replicaMaximumPoolSize;
+
+    @Value("${authorization.datasource.replica.connection-timeout}")
+    private long replicaConnectionTimeout;
+
+    @Value("${authorization.datasource.replica.health-check-timeout}")
+    private Duration replicaHealthCheckTimeout;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+                                                        DataSourceProperties properties,
+                                                        MeterRegistry meterRegistry) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + replicas.size());
+            config.setJdbcUrl(url.trim());
+            config.setDriverClassName(properties.determineDriverClassName());
+            config.setUsername(replicaUsername);
+            config.setPassword(replicaPassword);
+            config.setMaximumPoolSize(replicaMaximumPoolSize);
+            config.setConnectionTimeout(replicaConnectionTimeout);
+            config.setInitializationFailTimeout(-1);
+            config.setMetricRegistry(meterRegistry);
+            replicas.add(new HikariDataSource(config));
+        }
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicas, replicaHealthCheckTimeout);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
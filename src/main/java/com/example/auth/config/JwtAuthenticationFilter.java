@@ -1,5 +1,10 @@
 package com.example.auth.config;
 
+import com.example.auth.cache.RevocationIndex;
+import com.example.auth.metrics.AuthMetrics;
+import com.example.auth.models.principals.UserPrincipal;
+import com.example.auth.models.tokens.TokenClaims;
+import com.example.auth.models.tokens.VerifiedToken;
 import com.example.auth.services.impl.TokenService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -23,29 +28,49 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final TokenService tokenService;
     private final UserDetailsService userDetailsService;
+    private final RevocationIndex revocationIndex;
+    private final AuthMetrics metrics;
 
     @Override
     protected void doFilterInternal(@NotNull HttpServletRequest request,
                                     @NotNull HttpServletResponse response,
                                     @NotNull FilterChain filterChain) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
-        final String token;
-        final String username;
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
             return;
         }
-        token = authHeader.substring(7);
-        username = tokenService.extractUsername(token);
+        metrics.getFilterTotal().record(() -> authenticate(request, authHeader.substring(7)));
+        filterChain.doFilter(request, response);
+    }
+
+    private void authenticate(HttpServletRequest request, String jwt) {
+        final VerifiedToken token = metrics.getFilterParse().record(() -> tokenService.verifyToken(jwt));
+        if (token.getClaim(TokenClaims.TOKEN_FAMILY, String.class) != null || revocationIndex.isRevoked(token)) {
+            return;
+        }
+        final String username = token.getSubject();
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            if (tokenService.isTokenValid(token, userDetails)) {
+            UserDetails userDetails = metrics.getFilterUserLookup().record(() -> loadUser(token));
+            if (userDetails.isEnabled() && tokenService.isTokenValid(token, userDetails)) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
             }
         }
-        filterChain.doFilter(request, response);
+    }
+
+    private UserDetails loadUser(VerifiedToken token) {
+        if (tokenService.isStateless()) {
+            // The principal, credential version included, comes from the token itself, so the
+            // credential version check cannot catch a password change here. Such tokens are
+            // only rejected through the revocation index, to which the change adds them.
+            UserPrincipal principal = UserPrincipal.of(token);
+            if (principal != null) {
+                return principal;
+            }
+        }
+        return userDetailsService.loadUserByUsername(token.getSubject());
     }
 }
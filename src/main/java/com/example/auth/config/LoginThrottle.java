@@ -0,0 +1,102 @@
+package com.example.auth.config;
+
+import com.example.auth.exceptions.TooManyRequestsException;
+import com.example.auth.metrics.AuthMetrics;
+import com.example.auth.models.enums.UserRole;
+import com.example.auth.models.principals.UserPrincipal;
+import com.example.auth.services.IPrincipalService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits sign-in attempts per client address and per username before any hashing work is
+ * done, and per address before any database work. Each key is a token bucket kept as a
+ * single theoretical arrival time (GCRA) and updated with compare-and-set, so the hot path
+ * takes no locks. A key that stays idle for a full period has a full bucket again and is
+ * simply evicted.
+ * <p>
+ * Service accounts are only limited per address: a whole fleet of resource servers signs in
+ * under one username, and would otherwise share a single bucket. The role is read through
+ * the principal cache, which the sign-in that follows uses as well.
+ */
+@Component
+public class LoginThrottle {
+
+    private final IPrincipalService principalService;
+    private final boolean enabled;
+    private final Bucket addresses;
+    private final Bucket usernames;
+
+    public LoginThrottle(AuthMetrics metrics,
+                         IPrincipalService principalService,
+                         @Value("${authorization.login-throttle.enabled}") boolean enabled,
+                         @Value("${authorization.login-throttle.ip.limit}") int addressLimit,
+                         @Value("${authorization.login-throttle.ip.period}") Duration addressPeriod,
+                         @Value("${authorization.login-throttle.username.limit}") int usernameLimit,
+                         @Value("${authorization.login-throttle.username.period}") Duration usernamePeriod,
+                         @Value("${authorization.login-throttle.maximum-keys}") long maximumKeys) {
+        this.principalService = principalService;
+        this.enabled = enabled;
+        this.addresses = new Bucket(addressLimit, addressPeriod, maximumKeys, metrics.getSignInThrottledByAddress());
+        this.usernames = new Bucket(usernameLimit, usernamePeriod, maximumKeys, metrics.getSignInThrottledByUsername());
+    }
+
+    public void acquire(String address, String username) {
+        if (!enabled) {
+            return;
+        }
+        addresses.acquire(address);
+        if (!isServiceAccount(username)) {
+            usernames.acquire(username);
+        }
+    }
+
+    private boolean isServiceAccount(String username) {
+        UserPrincipal principal = principalService.loadActivePrincipals(List.of(username)).get(username);
+        return principal != null && principal.getRole() == UserRole.SERVICE;
+    }
+
+    private static final class Bucket {
+
+        private final long origin = System.nanoTime();
+        private final long interval;
+        private final long tolerance;
+        private final Cache<String, AtomicLong> arrivals;
+        private final Counter rejections;
+
+        private Bucket(int limit, Duration period, long maximumKeys, Counter rejections) {
+            this.interval = period.toNanos() / limit;
+            this.tolerance = period.toNanos();
+            this.arrivals = Caffeine.newBuilder()
+                    .maximumSize(maximumKeys)
+                    .expireAfterAccess(period)
+                    .build();
+            this.rejections = rejections;
+        }
+
+        private void acquire(String key) {
+            AtomicLong arrival = arrivals.get(key, k -> new AtomicLong());
+            long now = System.nanoTime() - origin;
+            while (true) {
+                long current = arrival.get();
+                long next = Math.max(current, now) + interval;
+                long excess = next - now - tolerance;
+                if (excess > 0) {
+                    rejections.increment();
+                    throw new TooManyRequestsException("Too many sign-in attempts", Math.max(1, TimeUnit.NANOSECONDS.toSeconds(excess + 999_999_999)));
+                }
+                if (arrival.compareAndSet(current, next)) {
+                    return;
+                }
+            }
+        }
+    }
+}
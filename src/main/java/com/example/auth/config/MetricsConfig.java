@@ -0,0 +1,42 @@
+package com.example.auth.config;
+
+import com.example.auth.cache.PrincipalCache;
+import com.example.auth.cache.RevocationIndex;
+import com.example.auth.cache.UsernameFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder principalCacheMetrics(PrincipalCache principalCache) {
+        return registry -> {
+            FunctionCounter.builder("auth.principal.cache", principalCache, PrincipalCache::hitCount)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("auth.principal.cache", principalCache, PrincipalCache::missCount)
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("auth.principal.cache.evictions", principalCache, PrincipalCache::evictionCount)
+                    .register(registry);
+            FunctionCounter.builder("auth.principal.cache.invalidations", principalCache, PrincipalCache::invalidationCount)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder usernameFilterMetrics(UsernameFilter usernameFilter) {
+        return registry -> FunctionCounter.builder("auth.username.filter.rejections", usernameFilter, UsernameFilter::rejectionCount)
+                .register(registry);
+    }
+
+    @Bean
+    public MeterBinder revocationIndexMetrics(RevocationIndex revocationIndex) {
+        return registry -> Gauge.builder("auth.revocation.index.size", revocationIndex, RevocationIndex::size)
+                .register(registry);
+    }
+}
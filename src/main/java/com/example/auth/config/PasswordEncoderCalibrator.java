@@ -0,0 +1,50 @@
+package com.example.auth.config;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.function.IntToLongFunction;
+
+public class PasswordEncoderCalibrator {
+
+    private static final Log log = LogFactory.getLog(PasswordEncoderCalibrator.class);
+    private static final int MAX_STRENGTH = 31;
+    private static final String SAMPLE_PASSWORD = "Calibration@Sample1";
+
+    /**
+     * Each BCrypt strength step doubles the cost, so the search stops as soon as the next
+     * step is predicted to exceed the target. Never returns less than {@code minStrength}.
+     */
+    public static int calibrateBCryptStrength(Duration target, int minStrength) {
+        return calibrateBCryptStrength(target, minStrength, PasswordEncoderCalibrator::measure);
+    }
+
+    /**
+     * {@code measure} returns the nanoseconds one hash takes at the given strength.
+     */
+    static int calibrateBCryptStrength(Duration target, int minStrength, IntToLongFunction measure) {
+        int strength = minStrength;
+        long nanos = measure.applyAsLong(strength);
+        while (strength < MAX_STRENGTH && nanos * 2 <= target.toNanos()) {
+            strength++;
+            nanos = measure.applyAsLong(strength);
+        }
+        log.info("Calibrated BCrypt strength " + strength + " (" + Duration.ofNanos(nanos).toMillis()
+                + " ms per hash, target " + target.toMillis() + " ms)");
+        return strength;
+    }
+
+    private static long measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        encoder.encode(SAMPLE_PASSWORD);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.auth.config;
 
+import com.example.auth.models.enums.UserRole;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -18,7 +21,12 @@ import org.springframework.security.web.authentication.logout.LogoutHandler;
 @RequiredArgsConstructor
 public class SecurityConfiguration {
 
+    private static final String INTROSPECTION_URL = "/api/v1/auth/introspect";
+    private static final String PROMETHEUS_URL = "/actuator/prometheus";
+
     private static final String[] WHITE_LIST_URL = {"/api/v1/auth/**",
+            "/actuator/health",
+            "/.well-known/jwks.json",
             "/v2/api-docs",
             "/v3/api-docs",
             "/v3/api-docs/**",
@@ -33,14 +41,21 @@ public class SecurityConfiguration {
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final AuthenticationProvider authenticationProvider;
     private final LogoutHandler logoutHandler;
+    private final Environment environment;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
-                .authorizeHttpRequests(auth -> auth
-                        .requestMatchers(WHITE_LIST_URL).permitAll()
-                        .anyRequest().authenticated())
+                .authorizeHttpRequests(auth -> {
+                    auth.requestMatchers(INTROSPECTION_URL).hasRole(UserRole.SERVICE.name())
+                            .requestMatchers(WHITE_LIST_URL).permitAll();
+                    // Only open when actuator is served on its own port and not on the public one.
+                    if (ManagementPortType.get(environment) == ManagementPortType.DIFFERENT) {
+                        auth.requestMatchers(PROMETHEUS_URL).permitAll();
+                    }
+                    auth.anyRequest().authenticated();
+                })
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .requiresChannel(channel -> channel
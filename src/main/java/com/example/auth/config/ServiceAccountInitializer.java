@@ -0,0 +1,125 @@
+package com.example.auth.config;
+
+import com.example.auth.models.entities.UserEntity;
+import com.example.auth.models.enums.UserRole;
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.repositories.UserRepository;
+import com.example.auth.services.IAuthService;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Provisions the account that services sign in with to call token introspection, since
+ * sign-up only ever creates ordinary users. The account is created with the {@code SERVICE}
+ * role on first start, and its password follows the configured one on later starts. An
+ * existing user with the same username and another role is never promoted, as anyone could
+ * have signed up under that name.
+ * <p>
+ * Nodes starting together may both try to create the account; the one that loses the insert
+ * treats the account as existing.
+ */
+@Component
+public class ServiceAccountInitializer {
+
+    private static final Log log = LogFactory.getLog(ServiceAccountInitializer.class);
+    private static final int COLUMN_LENGTH = 45;
+    private static final String EMAIL_DOMAIN = "@localhost";
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final IAuthService authService;
+    private final TransactionTemplate transactionTemplate;
+    private final String username;
+    private final String password;
+
+    public ServiceAccountInitializer(UserRepository userRepository,
+                                     PasswordEncoder passwordEncoder,
+                                     IAuthService authService,
+                                     TransactionTemplate transactionTemplate,
+                                     @Value("${authorization.service-account.username}") String username,
+                                     @Value("${authorization.service-account.password}") String password) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.authService = authService;
+        this.transactionTemplate = transactionTemplate;
+        this.username = username;
+        this.password = password;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void provision() {
+        if (username.isBlank()) {
+            return;
+        }
+        if (password.isBlank()) {
+            throw new IllegalStateException("SERVICE_ACCOUNT_PASSWORD must be set with SERVICE_ACCOUNT_USERNAME");
+        }
+        if (username.length() > COLUMN_LENGTH) {
+            throw new IllegalStateException("SERVICE_ACCOUNT_USERNAME must be at most " + COLUMN_LENGTH + " characters");
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> provision(true));
+        } catch (DataIntegrityViolationException e) {
+            transactionTemplate.executeWithoutResult(status -> provision(false));
+        }
+    }
+
+    private void provision(boolean create) {
+        UserEntity user = userRepository.findByUsername(username).orElse(null);
+        if (user == null) {
+            if (!create) {
+                log.error("Service account " + username + " cannot be created: e-mail " + email() + " is taken");
+                return;
+            }
+            user = new UserEntity();
+            user.setName(username);
+            user.setUsername(username);
+            user.setEmail(email());
+            user.setPassword(passwordEncoder.encode(password));
+            user.setStatus(UserStatus.ACTIVE);
+            user.setRole(UserRole.SERVICE);
+            userRepository.saveAndFlush(user);
+            log.info("Created service account " + username);
+            return;
+        }
+        if (user.getRole() != UserRole.SERVICE) {
+            log.error("User " + username + " exists with role " + user.getRole() + "; not using it as the service account");
+            return;
+        }
+        if (!passwordEncoder.matches(password, user.getPassword())) {
+            user.setPassword(passwordEncoder.encode(password));
+            user.setCredentialVersion(user.getCredentialVersion() + 1);
+            authService.revokeAllUserTokens(user);
+            userRepository.save(user);
+            log.info("Updated the password of service account " + username);
+        }
+    }
+
+    /**
+     * The account never receives mail, but the column is required and as long as the
+     * username's, so a username too long to carry the domain is replaced by its digest.
+     */
+    private String email() {
+        if (username.length() + EMAIL_DOMAIN.length() <= COLUMN_LENGTH) {
+            return username + EMAIL_DOMAIN;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(username.getBytes(StandardCharsets.UTF_8));
+            return "service-" + HexFormat.of().formatHex(digest, 0, 8) + EMAIL_DOMAIN;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
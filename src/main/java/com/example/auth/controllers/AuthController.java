@@ -1,26 +1,31 @@
 package com.example.auth.controllers;
 
+import com.example.auth.config.LoginThrottle;
+import com.example.auth.models.requests.IntrospectionRequest;
 import com.example.auth.models.requests.SignInRequest;
 import com.example.auth.models.requests.SignUpRequest;
 import com.example.auth.models.responses.AuthenticationResponse;
+import com.example.auth.models.responses.IntrospectionResponse;
 import com.example.auth.services.IAuthService;
+import com.example.auth.services.IIntrospectionService;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.io.IOException;
-
 @RestController
 @RequestMapping("/api/v1/auth")
 @RequiredArgsConstructor
 public class AuthController {
 
     private final IAuthService authService;
+    private final IIntrospectionService introspectionService;
+    private final LoginThrottle loginThrottle;
 
     @PostMapping("/signup")
     public AuthenticationResponse signUp(@RequestBody @Valid SignUpRequest request) {
@@ -28,12 +33,18 @@ public class AuthController {
     }
 
     @PostMapping("/signin")
-    public AuthenticationResponse signIn(@RequestBody @Valid SignInRequest request) {
+    public AuthenticationResponse signIn(@RequestBody @Valid SignInRequest request, HttpServletRequest servletRequest) {
+        loginThrottle.acquire(servletRequest.getRemoteAddr(), request.getUsername());
         return authService.signIn(request);
     }
 
     @PostMapping("/refresh-token")
-    public void refreshToken(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        authService.refreshToken(request, response);
+    public AuthenticationResponse refreshToken(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        return authService.refreshToken(authorization);
+    }
+
+    @PostMapping("/introspect")
+    public IntrospectionResponse introspect(@RequestBody @Valid IntrospectionRequest request) {
+        return introspectionService.introspect(request);
     }
 }
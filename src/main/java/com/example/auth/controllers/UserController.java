@@ -1,9 +1,13 @@
 package com.example.auth.controllers;
 
+import com.example.auth.models.principals.UserPrincipal;
 import com.example.auth.models.requests.ChangePasswordRequest;
+import com.example.auth.models.responses.UserResponse;
 import com.example.auth.services.IUserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -18,6 +22,14 @@ public class UserController {
 
     private final IUserService userService;
 
+    /**
+     * Answered from the authenticated principal alone, without a database query.
+     */
+    @GetMapping("/me")
+    public UserResponse me(@AuthenticationPrincipal UserPrincipal principal) {
+        return UserResponse.of(principal);
+    }
+
     @PutMapping("/change-password")
     public ResponseEntity<?> changePassword(@RequestBody ChangePasswordRequest request, Principal principal) {
         userService.changePassword(request, principal);
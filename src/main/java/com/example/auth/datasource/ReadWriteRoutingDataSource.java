@@ -0,0 +1,200 @@
+package com.example.auth.datasource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to a healthy replica, round robin, and everything else to the
+ * primary. Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * so that the connection is fetched after the transaction's read-only flag is set.
+ * <p>
+ * Once a request has run a read-write transaction, its later reads stay on the primary, so a
+ * request always sees its own writes. Replicas that fail a connection attempt or the periodic
+ * health check are skipped until a health check succeeds again.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Log log = LogFactory.getLog(ReadWriteRoutingDataSource.class);
+    private static final String PRIMARY = "primary";
+    private static final String PRIMARY_PINNED_ATTRIBUTE = ReadWriteRoutingDataSource.class.getName() + ".PRIMARY_PINNED";
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final int healthCheckTimeoutSeconds;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ThreadLocal<Boolean> primaryOnly = new ThreadLocal<>();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration healthCheckTimeout) {
+        this.primary = primary;
+        this.healthCheckTimeoutSeconds = (int) Math.max(1, healthCheckTimeout.toSeconds());
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = new Replica("replica-" + i, replicas.get(i));
+            this.replicas.add(replica);
+            targets.put(replica.name, replica.dataSource);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        checkReplicas();
+    }
+
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    /**
+     * Runs {@code read} with every transaction it starts on the primary, for reads that must
+     * not miss a write made elsewhere moments ago.
+     */
+    public <T> T readFromPrimary(Supplier<T> read) {
+        if (primaryOnly.get() != null) {
+            return read.get();
+        }
+        primaryOnly.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            primaryOnly.remove();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                pinRequestToPrimary();
+            }
+            return PRIMARY;
+        }
+        if (primaryOnly.get() != null || isRequestPinnedToPrimary()) {
+            return PRIMARY;
+        }
+        Replica replica = nextHealthyReplica();
+        return replica != null ? replica.name : PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        try {
+            return target.getConnection();
+        } catch (SQLException e) {
+            Replica replica = findReplica(target);
+            if (replica == null) {
+                throw e;
+            }
+            replica.setHealthy(false, e);
+            return primary.getConnection();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${authorization.datasource.replica.health-check-interval}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                replica.setHealthy(connection.isValid(healthCheckTimeoutSeconds), null);
+            } catch (SQLException e) {
+                replica.setHealthy(false, e);
+            }
+        }
+    }
+
+    /**
+     * Closes the replica pools; the primary is owned by its own bean.
+     */
+    public void close() {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Failed to close read replica " + replica.name, e);
+                }
+            }
+        }
+    }
+
+    private Replica nextHealthyReplica() {
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private Replica findReplica(DataSource dataSource) {
+        for (Replica replica : replicas) {
+            if (replica.dataSource == dataSource) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private static void pinRequestToPrimary() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(PRIMARY_PINNED_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private static boolean isRequestPinnedToPrimary() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null && attributes.getAttribute(PRIMARY_PINNED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        private void setHealthy(boolean healthy, SQLException cause) {
+            if (this.healthy == healthy) {
+                return;
+            }
+            this.healthy = healthy;
+            if (healthy) {
+                log.info("Read replica " + name + " is healthy, routing read-only transactions to it");
+            } else {
+                log.warn("Read replica " + name + " is unavailable, routing its reads to the primary"
+                        + (cause != null ? ": " + cause.getMessage() : ""));
+            }
+        }
+    }
+}
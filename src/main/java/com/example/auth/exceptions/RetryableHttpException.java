@@ -0,0 +1,15 @@
+package com.example.auth.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+@Getter
+public class RetryableHttpException extends HttpException {
+
+    private final long retryAfterSeconds;
+
+    public RetryableHttpException(HttpStatus status, Object data, long retryAfterSeconds) {
+        super(status, data);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
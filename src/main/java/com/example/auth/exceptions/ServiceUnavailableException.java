@@ -0,0 +1,15 @@
+package com.example.auth.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+public class ServiceUnavailableException extends RetryableHttpException {
+
+    public ServiceUnavailableException(long retryAfterSeconds) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, null, retryAfterSeconds);
+    }
+
+
+    public ServiceUnavailableException(Object data, long retryAfterSeconds) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, data, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.auth.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+public class TooManyRequestsException extends RetryableHttpException {
+
+    public TooManyRequestsException(long retryAfterSeconds) {
+        super(HttpStatus.TOO_MANY_REQUESTS, null, retryAfterSeconds);
+    }
+
+
+    public TooManyRequestsException(Object data, long retryAfterSeconds) {
+        super(HttpStatus.TOO_MANY_REQUESTS, data, retryAfterSeconds);
+    }
+}
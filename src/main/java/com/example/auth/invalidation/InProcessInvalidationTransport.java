@@ -0,0 +1,33 @@
+package com.example.auth.invalidation;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Delivers batches to every receiver started on this instance. With a single node this is
+ * all that is needed; several buses sharing one instance stand in for a cluster in tests.
+ */
+@Component
+@ConditionalOnProperty(name = "authorization.invalidation.transport", havingValue = "in-process", matchIfMissing = true)
+public class InProcessInvalidationTransport implements InvalidationTransport {
+
+    private final List<Receiver> receivers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void send(InvalidationBatch batch) {
+        receivers.forEach(receiver -> receiver.receive(batch));
+    }
+
+    @Override
+    public void start(Receiver receiver) {
+        receivers.add(receiver);
+    }
+
+    @Override
+    public void stop() {
+        receivers.clear();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.auth.invalidation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvalidationBatch {
+    private String origin;
+    private List<InvalidationEvent> events;
+}
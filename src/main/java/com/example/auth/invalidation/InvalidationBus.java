@@ -0,0 +1,216 @@
+package com.example.auth.invalidation;
+
+import com.example.auth.cache.PrincipalCache;
+import com.example.auth.cache.RevocationIndex;
+import com.example.auth.cache.UsernameFilter;
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.util.LoggingUtil;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Propagates revocations and user changes to the other nodes so their revocation index,
+ * principal cache and username filter follow this node's. Events are published once the
+ * surrounding transaction commits, coalesced by key, and sent in one batch per
+ * {@code max-delay}; batches from this node are ignored on receipt.
+ * <p>
+ * A batch the transport fails to send is merged back into the pending events and retried
+ * with backoff. Once {@code retry-attempts} sends in a row have failed, the other nodes may
+ * have missed too much to catch up from single events, so a resync event is added that makes
+ * them reload everything when it finally arrives.
+ */
+@Component
+public class InvalidationBus implements InvalidationTransport.Receiver, SmartLifecycle {
+
+    private static final Log log = LogFactory.getLog(InvalidationBus.class);
+
+    private final InvalidationTransport transport;
+    private final RevocationIndex revocationIndex;
+    private final PrincipalCache principalCache;
+    private final UsernameFilter usernameFilter;
+    private final String nodeId;
+    private final long maxDelayNanos;
+    private final int retryAttempts;
+    private final long retryBackoffMillis;
+    private final ConcurrentHashMap<String, InvalidationEvent> pending = new ConcurrentHashMap<>();
+    private final Semaphore signal = new Semaphore(0);
+    private volatile boolean running;
+    private Thread publisher;
+    private int failures;
+
+    public InvalidationBus(InvalidationTransport transport,
+                           RevocationIndex revocationIndex,
+                           PrincipalCache principalCache,
+                           UsernameFilter usernameFilter,
+                           @Value("${authorization.invalidation.node-id}") String nodeId,
+                           @Value("${authorization.invalidation.max-delay}") Duration maxDelay,
+                           @Value("${authorization.invalidation.retry-attempts}") int retryAttempts,
+                           @Value("${authorization.invalidation.retry-backoff}") Duration retryBackoff) {
+        this.transport = transport;
+        this.revocationIndex = revocationIndex;
+        this.principalCache = principalCache;
+        this.usernameFilter = usernameFilter;
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.retryAttempts = retryAttempts;
+        this.retryBackoffMillis = retryBackoff.toMillis();
+    }
+
+    public void publish(InvalidationEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(event);
+                }
+            });
+        } else {
+            enqueue(event);
+        }
+    }
+
+    @Override
+    public void receive(InvalidationBatch batch) {
+        if (nodeId.equals(batch.getOrigin())) {
+            return;
+        }
+        for (InvalidationEvent event : batch.getEvents()) {
+            switch (event.getType()) {
+                case TOKEN_REVOKED -> revocationIndex.revoke(UUID.fromString(event.getKey()),
+                        event.getValue() == 0 ? null : Instant.ofEpochMilli(event.getValue()));
+                case USER_CHANGED -> {
+                    principalCache.evict(event.getKey());
+                    usernameFilter.onUserChanged(event.getKey(), UserStatus.values()[(int) event.getValue()]);
+                }
+                case USER_TOKENS_BUMPED -> revocationIndex.revokeUserTokens(Integer.valueOf(event.getKey()), (int) event.getValue());
+                case RESYNC -> resync();
+            }
+        }
+    }
+
+    /**
+     * Events may have been missed: drop every cached principal, rebuild the username filter
+     * and reload revocations.
+     */
+    @Override
+    public void resync() {
+        principalCache.evictAll();
+        usernameFilter.reset();
+        revocationIndex.load();
+    }
+
+    private void enqueue(InvalidationEvent event) {
+        pending.merge(event.coalescingKey(), event, InvalidationEvent::coalesce);
+        signal.release();
+    }
+
+    private void runPublisher() {
+        while (running || !pending.isEmpty()) {
+            try {
+                if (!signal.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+                if (running) {
+                    TimeUnit.NANOSECONDS.sleep(maxDelayNanos);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            signal.drainPermits();
+            flush();
+        }
+    }
+
+    private void flush() {
+        List<InvalidationEvent> batch = new ArrayList<>(pending.size());
+        for (String key : pending.keySet()) {
+            InvalidationEvent event = pending.remove(key);
+            if (event != null) {
+                batch.add(event);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transport.send(new InvalidationBatch(nodeId, batch));
+            failures = 0;
+        } catch (RuntimeException e) {
+            LoggingUtil.logException(e, log);
+            retry(batch);
+        }
+    }
+
+    /**
+     * Merges a batch that failed to send back into the pending events, where newer events
+     * published meanwhile take precedence, and schedules the next attempt.
+     */
+    private void retry(List<InvalidationEvent> batch) {
+        failures++;
+        if (!running && failures >= retryAttempts) {
+            log.error("Dropping " + batch.size() + " invalidation events after " + failures + " failed sends");
+            pending.clear();
+            return;
+        }
+        for (InvalidationEvent event : batch) {
+            pending.merge(event.coalescingKey(), event, (newer, failed) -> failed.coalesce(newer));
+        }
+        if (failures == retryAttempts) {
+            log.warn("Invalidation events could not be sent " + failures + " times, requesting a resync");
+            enqueue(InvalidationEvent.resync());
+        }
+        try {
+            Thread.sleep(retryBackoffMillis << (Math.min(failures, retryAttempts) - 1));
+        } catch (InterruptedException e) {
+            running = false;
+        }
+        signal.release();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        transport.start(this);
+        publisher = new Thread(this::runPublisher, "invalidation-publisher");
+        publisher.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            publisher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        transport.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops after the web server and the token writer, so revocations made while draining
+     * are still published.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 8192;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.auth.invalidation;
+
+import com.example.auth.models.enums.UserStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvalidationEvent {
+
+    public enum Type {
+        TOKEN_REVOKED, USER_CHANGED, USER_TOKENS_BUMPED, RESYNC
+    }
+
+    private Type type;
+    private String key;
+    private long value;
+
+    public static InvalidationEvent tokenRevoked(UUID tokenId, Instant expiresAt) {
+        return new InvalidationEvent(Type.TOKEN_REVOKED, tokenId.toString(), expiresAt == null ? 0 : expiresAt.toEpochMilli());
+    }
+
+    public static InvalidationEvent userChanged(String username, UserStatus status) {
+        return new InvalidationEvent(Type.USER_CHANGED, username, status.ordinal());
+    }
+
+    public static InvalidationEvent userTokensBumped(Integer userId, int tokenGeneration) {
+        return new InvalidationEvent(Type.USER_TOKENS_BUMPED, userId.toString(), tokenGeneration);
+    }
+
+    /**
+     * Asks the receiving nodes to reload everything, after events for them have been lost.
+     */
+    public static InvalidationEvent resync() {
+        return new InvalidationEvent(Type.RESYNC, "", 0);
+    }
+
+    String coalescingKey() {
+        return type.name() + ':' + key;
+    }
+
+    /**
+     * Keeps the latest state for a changed user, and the larger expiry or generation otherwise.
+     */
+    InvalidationEvent coalesce(InvalidationEvent next) {
+        if (type == Type.USER_CHANGED) {
+            return next;
+        }
+        return next.value >= value ? next : this;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.auth.invalidation;
+
+/**
+ * Carries invalidation batches between nodes. Delivery is at most once; a transport that may
+ * have missed batches, for example after reconnecting, asks the receiver to resynchronize.
+ */
+public interface InvalidationTransport {
+
+    void send(InvalidationBatch batch);
+
+    void start(Receiver receiver);
+
+    void stop();
+
+    interface Receiver {
+
+        void receive(InvalidationBatch batch);
+
+        void resync();
+    }
+}
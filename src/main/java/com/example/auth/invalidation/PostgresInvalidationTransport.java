@@ -0,0 +1,164 @@
+package com.example.auth.invalidation;
+
+import com.example.auth.util.LoggingUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Publishes batches with {@code pg_notify} and receives them on a dedicated connection
+ * that is held outside the pool and blocks in {@code LISTEN} until a notification arrives.
+ * Notifications sent while that connection is down are lost, so every reconnect triggers a
+ * resync. A failed send is thrown to the bus, which retries it and requests a resync once
+ * retries are exhausted.
+ */
+@Component
+@ConditionalOnProperty(name = "authorization.invalidation.transport", havingValue = "postgres")
+public class PostgresInvalidationTransport implements InvalidationTransport {
+
+    private static final Log log = LogFactory.getLog(PostgresInvalidationTransport.class);
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+    private static final int LISTEN_TIMEOUT_MILLIS = 500;
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private final DataSource dataSource;
+    private final DataSourceProperties dataSourceProperties;
+    private final ObjectMapper objectMapper;
+    private final String channel;
+    private volatile boolean running;
+    private Thread listener;
+
+    public PostgresInvalidationTransport(DataSource dataSource,
+                                         DataSourceProperties dataSourceProperties,
+                                         ObjectMapper objectMapper,
+                                         @Value("${authorization.invalidation.channel}") String channel) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid invalidation channel name " + channel);
+        }
+        this.dataSource = dataSource;
+        this.dataSourceProperties = dataSourceProperties;
+        this.objectMapper = objectMapper;
+        this.channel = channel;
+    }
+
+    @Override
+    public void send(InvalidationBatch batch) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            for (String payload : payloads(batch)) {
+                statement.setString(1, channel);
+                statement.setString(2, payload);
+                statement.execute();
+            }
+        } catch (SQLException | JsonProcessingException e) {
+            throw new IllegalStateException("Could not send invalidation batch", e);
+        }
+    }
+
+    @Override
+    public void start(Receiver receiver) {
+        running = true;
+        listener = new Thread(() -> listen(receiver), "invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void listen(Receiver receiver) {
+        boolean connectedBefore = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                if (connectedBefore) {
+                    receiver.resync();
+                }
+                connectedBefore = true;
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(LISTEN_TIMEOUT_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        receive(receiver, notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                LoggingUtil.logException(e, log);
+                pause();
+            }
+        }
+    }
+
+    private void receive(Receiver receiver, String payload) {
+        try {
+            receiver.receive(objectMapper.readValue(payload, InvalidationBatch.class));
+        } catch (JsonProcessingException | RuntimeException e) {
+            LoggingUtil.logException(e, log);
+        }
+    }
+
+    /**
+     * NOTIFY payloads are limited to 8000 bytes, so a large batch goes out as several.
+     */
+    private List<String> payloads(InvalidationBatch batch) throws JsonProcessingException {
+        List<String> payloads = new ArrayList<>();
+        List<InvalidationEvent> chunk = new ArrayList<>();
+        int size = 0;
+        for (InvalidationEvent event : batch.getEvents()) {
+            int eventSize = objectMapper.writeValueAsString(event).getBytes(StandardCharsets.UTF_8).length + 1;
+            if (!chunk.isEmpty() && size + eventSize > MAX_PAYLOAD_BYTES) {
+                payloads.add(objectMapper.writeValueAsString(new InvalidationBatch(batch.getOrigin(), chunk)));
+                chunk = new ArrayList<>();
+                size = 0;
+            }
+            chunk.add(event);
+            size += eventSize;
+        }
+        if (!chunk.isEmpty()) {
+            payloads.add(objectMapper.writeValueAsString(new InvalidationBatch(batch.getOrigin(), chunk)));
+        }
+        return payloads;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package com.example.auth.jwt;
+
+import com.example.auth.models.tokens.TokenClaims;
+import com.example.auth.models.tokens.VerifiedToken;
+import com.example.auth.services.ISigningKeyService;
+import com.example.auth.util.TokenIdUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * HS256 codec for the tokens this service issues, without jjwt's claim maps, Jackson and
+ * intermediate strings: the header is encoded once, claims are written and base64url-encoded
+ * straight into per-thread buffers and signed with a per-thread {@link Mac}, and verification
+ * scans the flat claim object in place.
+ * <p>
+ * Only the shape this codec writes is handled here: its exact header and a flat object of
+ * integers and printable ASCII strings without escapes. Anything else, including tokens that
+ * fail the signature or expiry check, goes to jjwt, which accepts or rejects it as before.
+ */
+@Component
+@ConditionalOnProperty(name = "authorization.token.engine", havingValue = "hs256")
+public class Hs256JwtCodec implements JwtCodec {
+
+    private static final String HEADER = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.US_ASCII));
+    private static final byte[] HEADER_BYTES = HEADER.getBytes(StandardCharsets.US_ASCII);
+    private static final int MAC_LENGTH = 32;
+    private static final int SIGNATURE_LENGTH = 43;
+    private static final byte[] BASE64_URL =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BASE64_URL_VALUES = new byte[128];
+    private static final String[] CLAIM_NAMES = {
+            Claims.ID, Claims.SUBJECT, Claims.ISSUED_AT, Claims.EXPIRATION,
+            TokenClaims.USER_ID, TokenClaims.ROLE, TokenClaims.STATUS,
+            TokenClaims.CREDENTIAL_VERSION, TokenClaims.TOKEN_GENERATION, TokenClaims.TOKEN_FAMILY};
+    private static final byte[][] CLAIM_NAME_BYTES = new byte[CLAIM_NAMES.length][];
+
+    static {
+        Arrays.fill(BASE64_URL_VALUES, (byte) -1);
+        for (int i = 0; i < BASE64_URL.length; i++) {
+            BASE64_URL_VALUES[BASE64_URL[i]] = (byte) i;
+        }
+        for (int i = 0; i < CLAIM_NAMES.length; i++) {
+            CLAIM_NAME_BYTES[i] = CLAIM_NAMES[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final JjwtCodec fallback;
+    private final ThreadLocal<Buffers> buffers;
+
+    public Hs256JwtCodec(ISigningKeyService signingKeyService) {
+        if (signingKeyService.getSignatureAlgorithm() != SignatureAlgorithm.HS256 || signingKeyService.getSigningKeyId() != null) {
+            throw new IllegalStateException("The hs256 token engine requires the shared token secret and no signing key store");
+        }
+        Key key = signingKeyService.getSigningKey();
+        this.fallback = new JjwtCodec(signingKeyService);
+        this.buffers = ThreadLocal.withInitial(() -> new Buffers(mac(key)));
+    }
+
+    @Override
+    public String encode(Map<String, Object> claims, UUID id, String subject, Date issuedAt, Date expiration) {
+        Buffers buffers = this.buffers.get();
+        if (subject == null || !writeClaims(buffers, claims, id, subject, issuedAt, expiration)) {
+            return fallback.encode(claims, id, subject, issuedAt, expiration);
+        }
+        int signedLength = HEADER_BYTES.length + 1 + base64Length(buffers.jsonLength);
+        byte[] token = buffers.token(signedLength + 1 + SIGNATURE_LENGTH);
+        System.arraycopy(HEADER_BYTES, 0, token, 0, HEADER_BYTES.length);
+        token[HEADER_BYTES.length] = '.';
+        encodeBase64(buffers.json, buffers.jsonLength, token, HEADER_BYTES.length + 1);
+        sign(buffers, token, signedLength);
+        token[signedLength] = '.';
+        encodeBase64(buffers.signature, MAC_LENGTH, token, signedLength + 1);
+        return new String(token, 0, signedLength + 1 + SIGNATURE_LENGTH, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public VerifiedToken decode(String token) {
+        VerifiedToken verified = token != null ? decodeCanonical(token) : null;
+        return verified != null ? verified : fallback.decode(token);
+    }
+
+    private VerifiedToken decodeCanonical(String token) {
+        int signedLength = token.length() - SIGNATURE_LENGTH - 1;
+        if (signedLength <= HEADER_BYTES.length + 1 || !token.startsWith(HEADER)
+                || token.charAt(HEADER_BYTES.length) != '.' || token.charAt(signedLength) != '.') {
+            return null;
+        }
+        Buffers buffers = this.buffers.get();
+        byte[] signed = buffers.token(signedLength);
+        for (int i = 0; i < signedLength; i++) {
+            char c = token.charAt(i);
+            if (c >= 0x80) {
+                return null;
+            }
+            signed[i] = (byte) c;
+        }
+        sign(buffers, signed, signedLength);
+        encodeBase64(buffers.signature, MAC_LENGTH, buffers.expectedSignature, 0);
+        int difference = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            difference |= buffers.expectedSignature[i] ^ token.charAt(signedLength + 1 + i);
+        }
+        if (difference != 0 || !decodeBase64(signed, HEADER_BYTES.length + 1, signedLength, buffers)) {
+            return null;
+        }
+        Map<String, Object> claims = parseClaims(buffers.json, buffers.jsonLength);
+        if (claims == null || claims.containsKey(Claims.NOT_BEFORE)
+                || !(claims.get(Claims.ID) instanceof String || claims.get(Claims.ID) == null)
+                || !(claims.get(Claims.SUBJECT) instanceof String || claims.get(Claims.SUBJECT) == null)) {
+            return null;
+        }
+        Date issuedAt = toDate(claims.get(Claims.ISSUED_AT));
+        Date expiration = toDate(claims.get(Claims.EXPIRATION));
+        if (issuedAt == null && claims.containsKey(Claims.ISSUED_AT)
+                || expiration == null && claims.containsKey(Claims.EXPIRATION)
+                || expiration != null && System.currentTimeMillis() > expiration.getTime()) {
+            return null;
+        }
+        return new VerifiedToken(
+                TokenIdUtil.of((String) claims.get(Claims.ID), token),
+                (String) claims.get(Claims.SUBJECT),
+                issuedAt,
+                expiration,
+                Collections.unmodifiableMap(claims));
+    }
+
+    /**
+     * Writes the claims in the order jjwt does: the given claims, then id, subject and times.
+     * Returns {@code false} for claims outside the supported shape.
+     */
+    private static boolean writeClaims(Buffers buffers, Map<String, Object> claims, UUID id, String subject,
+                                       Date issuedAt, Date expiration) {
+        buffers.jsonLength = 0;
+        buffers.write('{');
+        for (Map.Entry<String, Object> claim : claims.entrySet()) {
+            String name = claim.getKey();
+            Object value = claim.getValue();
+            if (Claims.ID.equals(name) || Claims.SUBJECT.equals(name)
+                    || Claims.ISSUED_AT.equals(name) || Claims.EXPIRATION.equals(name)
+                    || !buffers.writeString(name)) {
+                return false;
+            }
+            buffers.write(':');
+            if (value instanceof String string) {
+                if (!buffers.writeString(string)) {
+                    return false;
+                }
+            } else if (value instanceof Integer || value instanceof Long) {
+                buffers.writeNumber(((Number) value).longValue());
+            } else {
+                return false;
+            }
+            buffers.write(',');
+        }
+        buffers.writeName(Claims.ID);
+        buffers.writeUuid(id);
+        buffers.write(',');
+        buffers.writeName(Claims.SUBJECT);
+        if (!buffers.writeString(subject)) {
+            return false;
+        }
+        buffers.write(',');
+        buffers.writeName(Claims.ISSUED_AT);
+        buffers.writeNumber(issuedAt.getTime() / 1000);
+        buffers.write(',');
+        buffers.writeName(Claims.EXPIRATION);
+        buffers.writeNumber(expiration.getTime() / 1000);
+        buffers.write('}');
+        return true;
+    }
+
+    /**
+     * Parses a flat object of integers and strings without escapes; {@code null} for anything else.
+     */
+    private static Map<String, Object> parseClaims(byte[] json, int length) {
+        Map<String, Object> claims = new HashMap<>();
+        int i = skipWhitespace(json, 0, length);
+        if (i == length || json[i] != '{') {
+            return null;
+        }
+        i = skipWhitespace(json, i + 1, length);
+        if (i < length && json[i] == '}') {
+            return skipWhitespace(json, i + 1, length) == length ? claims : null;
+        }
+        while (i < length && json[i] == '"') {
+            int nameEnd = stringEnd(json, i + 1, length);
+            if (nameEnd < 0) {
+                return null;
+            }
+            String name = claimName(json, i + 1, nameEnd);
+            i = skipWhitespace(json, nameEnd + 1, length);
+            if (i == length || json[i] != ':') {
+                return null;
+            }
+            i = skipWhitespace(json, i + 1, length);
+            if (i == length) {
+                return null;
+            }
+            if (json[i] == '"') {
+                int valueEnd = stringEnd(json, i + 1, length);
+                if (valueEnd < 0) {
+                    return null;
+                }
+                claims.put(name, new String(json, i + 1, valueEnd - i - 1, StandardCharsets.ISO_8859_1));
+                i = valueEnd + 1;
+            } else {
+                boolean negative = json[i] == '-';
+                int digitsStart = negative ? i + 1 : i;
+                long value = 0;
+                i = digitsStart;
+                while (i < length && json[i] >= '0' && json[i] <= '9') {
+                    value = value * 10 + (json[i++] - '0');
+                }
+                int digits = i - digitsStart;
+                if (digits == 0 || digits > 18 || digits > 1 && json[digitsStart] == '0') {
+                    return null;
+                }
+                value = negative ? -value : value;
+                if (value == (int) value) {
+                    claims.put(name, (int) value);
+                } else {
+                    claims.put(name, value);
+                }
+            }
+            i = skipWhitespace(json, i, length);
+            if (i == length) {
+                return null;
+            }
+            if (json[i] == '}') {
+                return skipWhitespace(json, i + 1, length) == length ? claims : null;
+            }
+            if (json[i] != ',') {
+                return null;
+            }
+            i = skipWhitespace(json, i + 1, length);
+        }
+        return null;
+    }
+
+    private static int stringEnd(byte[] json, int start, int length) {
+        for (int i = start; i < length; i++) {
+            byte b = json[i];
+            if (b == '"') {
+                return i;
+            }
+            if (b < 0x20 || b == '\\') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static String claimName(byte[] json, int start, int end) {
+        for (int i = 0; i < CLAIM_NAME_BYTES.length; i++) {
+            if (Arrays.equals(CLAIM_NAME_BYTES[i], 0, CLAIM_NAME_BYTES[i].length, json, start, end)) {
+                return CLAIM_NAMES[i];
+            }
+        }
+        return new String(json, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    private static int skipWhitespace(byte[] json, int i, int length) {
+        while (i < length && (json[i] == ' ' || json[i] == '\t' || json[i] == '\n' || json[i] == '\r')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static Date toDate(Object seconds) {
+        return seconds instanceof Integer || seconds instanceof Long ? new Date(((Number) seconds).longValue() * 1000) : null;
+    }
+
+    private static void sign(Buffers buffers, byte[] input, int length) {
+        try {
+            buffers.mac.update(input, 0, length);
+            buffers.mac.doFinal(buffers.signature, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int base64Length(int length) {
+        return length / 3 * 4 + (length % 3 == 0 ? 0 : length % 3 + 1);
+    }
+
+    private static void encodeBase64(byte[] input, int length, byte[] output, int offset) {
+        int i = 0;
+        int o = offset;
+        for (; i + 3 <= length; i += 3) {
+            int bits = (input[i] & 0xff) << 16 | (input[i + 1] & 0xff) << 8 | input[i + 2] & 0xff;
+            output[o++] = BASE64_URL[bits >>> 18];
+            output[o++] = BASE64_URL[bits >>> 12 & 0x3f];
+            output[o++] = BASE64_URL[bits >>> 6 & 0x3f];
+            output[o++] = BASE64_URL[bits & 0x3f];
+        }
+        if (length - i == 1) {
+            int bits = (input[i] & 0xff) << 16;
+            output[o++] = BASE64_URL[bits >>> 18];
+            output[o] = BASE64_URL[bits >>> 12 & 0x3f];
+        } else if (length - i == 2) {
+            int bits = (input[i] & 0xff) << 16 | (input[i + 1] & 0xff) << 8;
+            output[o++] = BASE64_URL[bits >>> 18];
+            output[o++] = BASE64_URL[bits >>> 12 & 0x3f];
+            output[o] = BASE64_URL[bits >>> 6 & 0x3f];
+        }
+    }
+
+    /**
+     * Decodes unpadded base64url from {@code input[start, end)} into the JSON buffer.
+     */
+    private static boolean decodeBase64(byte[] input, int start, int end, Buffers buffers) {
+        int length = end - start;
+        if (length % 4 == 1) {
+            return false;
+        }
+        byte[] output = buffers.json(length / 4 * 3 + 2);
+        int o = 0;
+        int bits = 0;
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            int value = BASE64_URL_VALUES[input[i]];
+            if (value < 0) {
+                return false;
+            }
+            bits = bits << 6 | value;
+            if (++count == 4) {
+                output[o++] = (byte) (bits >> 16);
+                output[o++] = (byte) (bits >> 8);
+                output[o++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+        if (count == 2) {
+            output[o++] = (byte) (bits >> 4);
+        } else if (count == 3) {
+            output[o++] = (byte) (bits >> 10);
+            output[o++] = (byte) (bits >> 2);
+        }
+        buffers.jsonLength = o;
+        return true;
+    }
+
+    private static Mac mac(Key key) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize HmacSHA256", e);
+        }
+    }
+
+    private static final class Buffers {
+
+        private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+        private final Mac mac;
+        private final byte[] signature = new byte[MAC_LENGTH];
+        private final byte[] expectedSignature = new byte[SIGNATURE_LENGTH];
+        private byte[] json = new byte[256];
+        private int jsonLength;
+        private byte[] token = new byte[512];
+
+        private Buffers(Mac mac) {
+            this.mac = mac;
+        }
+
+        private byte[] token(int length) {
+            if (token.length < length) {
+                token = new byte[Math.max(length, token.length * 2)];
+            }
+            return token;
+        }
+
+        private byte[] json(int length) {
+            if (json.length < length) {
+                json = new byte[Math.max(length, json.length * 2)];
+            }
+            return json;
+        }
+
+        private void write(char c) {
+            json(jsonLength + 1)[jsonLength++] = (byte) c;
+        }
+
+        private void writeName(String name) {
+            writeString(name);
+            write(':');
+        }
+
+        /**
+         * Writes printable ASCII without escapes; returns {@code false} for anything that would need one.
+         */
+        private boolean writeString(String value) {
+            int length = value.length();
+            byte[] json = json(jsonLength + length + 2);
+            int o = jsonLength;
+            json[o++] = '"';
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x20 || c >= 0x7f || c == '"' || c == '\\') {
+                    return false;
+                }
+                json[o++] = (byte) c;
+            }
+            json[o++] = '"';
+            jsonLength = o;
+            return true;
+        }
+
+        private void writeNumber(long value) {
+            byte[] json = json(jsonLength + 20);
+            if (value < 0) {
+                json[jsonLength++] = '-';
+            }
+            int start = jsonLength;
+            do {
+                json[jsonLength++] = (byte) ('0' + Math.abs(value % 10));
+                value /= 10;
+            } while (value != 0);
+            for (int i = start, j = jsonLength - 1; i < j; i++, j--) {
+                byte digit = json[i];
+                json[i] = json[j];
+                json[j] = digit;
+            }
+        }
+
+        private void writeUuid(UUID id) {
+            byte[] json = json(jsonLength + 38);
+            json[jsonLength++] = '"';
+            writeHex(id.getMostSignificantBits() >>> 32, 8);
+            json[jsonLength++] = '-';
+            writeHex(id.getMostSignificantBits() >>> 16, 4);
+            json[jsonLength++] = '-';
+            writeHex(id.getMostSignificantBits(), 4);
+            json[jsonLength++] = '-';
+            writeHex(id.getLeastSignificantBits() >>> 48, 4);
+            json[jsonLength++] = '-';
+            writeHex(id.getLeastSignificantBits(), 12);
+            json[jsonLength++] = '"';
+        }
+
+        private void writeHex(long value, int digits) {
+            for (int i = digits - 1; i >= 0; i--) {
+                json[jsonLength + i] = HEX[(int) (value & 0xf)];
+                value >>>= 4;
+            }
+            jsonLength += digits;
+        }
+    }
+}
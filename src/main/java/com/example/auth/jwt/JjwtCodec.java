@@ -0,0 +1,61 @@
+package com.example.auth.jwt;
+
+import com.example.auth.models.tokens.VerifiedToken;
+import com.example.auth.services.ISigningKeyService;
+import com.example.auth.util.TokenIdUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Builds and parses tokens with jjwt, for every signing algorithm the key service supports.
+ */
+@Component
+@ConditionalOnProperty(name = "authorization.token.engine", havingValue = "jjwt", matchIfMissing = true)
+public class JjwtCodec implements JwtCodec {
+
+    private final ISigningKeyService signingKeyService;
+    private final JwtParser jwtParser;
+
+    public JjwtCodec(ISigningKeyService signingKeyService) {
+        this.signingKeyService = signingKeyService;
+        this.jwtParser = Jwts
+                .parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return signingKeyService.getVerificationKey(header.getKeyId());
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public String encode(Map<String, Object> claims, UUID id, String subject, Date issuedAt, Date expiration) {
+        return Jwts
+                .builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKeyService.getSigningKeyId())
+                .setClaims(claims)
+                .setId(id.toString())
+                .setSubject(subject)
+                .setIssuedAt(issuedAt)
+                .setExpiration(expiration)
+                .signWith(signingKeyService.getSigningKey(), signingKeyService.getSignatureAlgorithm())
+                .compact();
+    }
+
+    @Override
+    public VerifiedToken decode(String token) {
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        return VerifiedToken.of(TokenIdUtil.of(claims.getId(), token), claims);
+    }
+}
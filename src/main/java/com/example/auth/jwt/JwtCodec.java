@@ -0,0 +1,18 @@
+package com.example.auth.jwt;
+
+import com.example.auth.models.tokens.VerifiedToken;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Signs and verifies the compact JWS tokens the service issues. Implementations are
+ * interchangeable on the wire and report rejected tokens with the jjwt exception types.
+ */
+public interface JwtCodec {
+
+    String encode(Map<String, Object> claims, UUID id, String subject, Date issuedAt, Date expiration);
+
+    VerifiedToken decode(String token);
+}
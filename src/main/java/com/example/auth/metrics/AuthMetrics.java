@@ -0,0 +1,62 @@
+package com.example.auth.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters for the authentication hot paths. They are registered once here so callers only
+ * hold references and never look a meter up by name per request.
+ */
+@Getter
+@Component
+public class AuthMetrics {
+
+    private final Timer filterTotal;
+    private final Timer filterParse;
+    private final Timer filterUserLookup;
+    private final Timer tokenSign;
+    private final Timer tokenVerify;
+    private final Timer passwordEncode;
+    private final Timer passwordMatch;
+    private final Counter signInSuccess;
+    private final Counter signInFailure;
+    private final Counter signInThrottledByAddress;
+    private final Counter signInThrottledByUsername;
+    private final Counter refresh;
+    private final Counter refreshReuse;
+    private final Counter logout;
+    private final Counter tokenWriteFailure;
+    private final Counter tokenWriteRevoked;
+    private final Timer tokenPurge;
+    private final Counter tokenPurged;
+
+    public AuthMetrics(MeterRegistry registry) {
+        this.filterTotal = timer(registry, "auth.filter", "phase", "total");
+        this.filterParse = timer(registry, "auth.filter", "phase", "parse");
+        this.filterUserLookup = timer(registry, "auth.filter", "phase", "user_lookup");
+        this.tokenSign = timer(registry, "auth.token", "operation", "sign");
+        this.tokenVerify = timer(registry, "auth.token", "operation", "verify");
+        this.passwordEncode = timer(registry, "auth.password", "operation", "encode");
+        this.passwordMatch = timer(registry, "auth.password", "operation", "match");
+        this.signInSuccess = Counter.builder("auth.signin").tag("outcome", "success").register(registry);
+        this.signInFailure = Counter.builder("auth.signin").tag("outcome", "failure").register(registry);
+        this.signInThrottledByAddress = Counter.builder("auth.signin.throttled").tag("key", "ip").register(registry);
+        this.signInThrottledByUsername = Counter.builder("auth.signin.throttled").tag("key", "username").register(registry);
+        this.refresh = Counter.builder("auth.refresh").register(registry);
+        this.refreshReuse = Counter.builder("auth.refresh.reuse").register(registry);
+        this.logout = Counter.builder("auth.logout").register(registry);
+        this.tokenWriteFailure = Counter.builder("auth.token.write.failure").tag("outcome", "retried").register(registry);
+        this.tokenWriteRevoked = Counter.builder("auth.token.write.failure").tag("outcome", "revoked").register(registry);
+        this.tokenPurge = Timer.builder("auth.token.purge").register(registry);
+        this.tokenPurged = Counter.builder("auth.token.purged").register(registry);
+    }
+
+    private static Timer timer(MeterRegistry registry, String name, String tagKey, String tagValue) {
+        return Timer.builder(name)
+                .tag(tagKey, tagValue)
+                .register(registry);
+    }
+}
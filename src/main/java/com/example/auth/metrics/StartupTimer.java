@@ -0,0 +1,55 @@
+package com.example.auth.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures cold start as clients see it: the time from JVM start until the application is
+ * ready and until the first successful sign-in. Both are logged once and exported as
+ * {@code auth.startup} gauges with {@code phase} = {@code ready}, {@code first_signin}.
+ */
+@Component
+public class StartupTimer {
+
+    private static final Log log = LogFactory.getLog(StartupTimer.class);
+
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private final AtomicBoolean signedIn = new AtomicBoolean();
+    private volatile double readySeconds = Double.NaN;
+    private volatile double firstSignInSeconds = Double.NaN;
+
+    public StartupTimer(MeterRegistry registry) {
+        TimeGauge.builder("auth.startup", this, TimeUnit.SECONDS, timer -> timer.readySeconds)
+                .tag("phase", "ready")
+                .register(registry);
+        TimeGauge.builder("auth.startup", this, TimeUnit.SECONDS, timer -> timer.firstSignInSeconds)
+                .tag("phase", "first_signin")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        readySeconds = secondsSinceJvmStart();
+        log.info("Application ready " + readySeconds + " s after JVM start");
+    }
+
+    public void recordSignIn() {
+        if (!signedIn.get() && signedIn.compareAndSet(false, true)) {
+            firstSignInSeconds = secondsSinceJvmStart();
+            log.info("First successful sign-in " + firstSignInSeconds + " s after JVM start");
+        }
+    }
+
+    private double secondsSinceJvmStart() {
+        return (System.currentTimeMillis() - jvmStartMillis) / 1000.0;
+    }
+}
@@ -7,21 +7,28 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
+import java.util.UUID;
+
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "\"Token\"")
+@Table(name = "\"Token\"", indexes = {
+        @Index(name = "token_token_id_idx", columnList = "token_id", unique = true),
+        @Index(name = "token_user_id_idx", columnList = "user_id"),
+        @Index(name = "token_family_id_idx", columnList = "family_id")})
 public class TokenEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "token_id_seq")
+    @SequenceGenerator(name = "token_id_seq", sequenceName = "token_id_seq", allocationSize = 50)
     @Column(name = "id", nullable = false)
     private Integer id;
 
-    @Column(name = "name", nullable = false, length = 255)
-    private String token;
+    @Column(name = "token_id", nullable = false, unique = true)
+    private UUID tokenId;
 
     @Column(name = "type", nullable = false, length = 10)
     @Enumerated(EnumType.STRING)
@@ -33,6 +40,12 @@ public class TokenEntity {
     @Column(name = "expired", nullable = false)
     private boolean expired;
 
+    @Column(name = "expires_at")
+    private Instant expiresAt;
+
+    @Column(name = "family_id")
+    private UUID familyId;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", referencedColumnName = "id", nullable = false)
     private UserEntity user;
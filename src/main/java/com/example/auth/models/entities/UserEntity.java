@@ -1,27 +1,33 @@
 package com.example.auth.models.entities;
 
+import com.example.auth.cache.UserEntityListener;
 import com.example.auth.models.enums.UserRole;
 import com.example.auth.models.enums.UserStatus;
+import com.example.auth.models.requests.SignUpRequest;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.UserDetails;
+import lombok.Setter;
+import lombok.ToString;
 
-import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 
-@Data
+/**
+ * Equality is by id and {@code toString} skips the password and the lazy token collection,
+ * so neither logging nor collections of users load a user's token history.
+ */
+@Getter
+@Setter
+@ToString
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
 @Table(name = "\"User\"")
-public class UserEntity implements UserDetails {
+@EntityListeners(UserEntityListener.class)
+public class UserEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id", nullable = false)
@@ -45,6 +51,7 @@ public class UserEntity implements UserDetails {
     @Size(max = 255)
     @NotNull
     @Column(name = "password", nullable = false)
+    @ToString.Exclude
     private String password;
 
     @NotNull
@@ -57,41 +64,34 @@ public class UserEntity implements UserDetails {
     @Column(name = "role", nullable = false)
     private UserRole role;
 
-    @OneToMany(mappedBy = "user")
-    private List<TokenEntity> tokens;
-
-    @Override
-    public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Collections.singletonList(new SimpleGrantedAuthority(status.name()));
-    }
+    @Column(name = "credential_version", nullable = false)
+    private int credentialVersion;
 
-    @Override
-    public String getPassword() {
-        return password;
-    }
+    @Column(name = "token_generation", nullable = false)
+    private int tokenGeneration;
 
-    @Override
-    public String getUsername() {
-        return username;
-    }
-
-    @Override
-    public boolean isAccountNonExpired() {
-        return true;
-    }
+    @OneToMany(mappedBy = "user")
+    @ToString.Exclude
+    private List<TokenEntity> tokens;
 
-    @Override
-    public boolean isAccountNonLocked() {
-        return true;
+    public static UserEntity of(SignUpRequest request) {
+        UserEntity user = new UserEntity();
+        user.setName(request.getName());
+        user.setUsername(request.getUsername());
+        user.setEmail(request.getEmail());
+        return user;
     }
 
     @Override
-    public boolean isCredentialsNonExpired() {
-        return true;
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof UserEntity other && id != null && id.equals(other.getId());
     }
 
     @Override
-    public boolean isEnabled() {
-        return true;
+    public int hashCode() {
+        return UserEntity.class.hashCode();
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package com.example.auth.models.enums;
 
 public enum TokenType {
-    BEARER
+    BEARER,
+    REFRESH
 }
@@ -1,5 +1,5 @@
 package com.example.auth.models.enums;
 
 public enum UserRole {
-    ADMIN, ORDINARY
+    ADMIN, ORDINARY, SERVICE
 }
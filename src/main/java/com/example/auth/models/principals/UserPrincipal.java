@@ -0,0 +1,92 @@
+package com.example.auth.models.principals;
+
+import com.example.auth.models.entities.UserEntity;
+import com.example.auth.models.enums.UserRole;
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.models.tokens.TokenClaims;
+import com.example.auth.models.tokens.VerifiedToken;
+import lombok.ToString;
+import lombok.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The authenticated user as held in the principal cache and the security context: an immutable
+ * copy of the columns authentication needs, detached from the persistence context.
+ */
+@Value
+public class UserPrincipal implements UserDetails {
+
+    private static final Map<UserStatus, Map<UserRole, List<GrantedAuthority>>> AUTHORITIES = new EnumMap<>(UserStatus.class);
+
+    static {
+        for (UserStatus status : UserStatus.values()) {
+            Map<UserRole, List<GrantedAuthority>> byRole = new EnumMap<>(UserRole.class);
+            for (UserRole role : UserRole.values()) {
+                byRole.put(role, List.of(new SimpleGrantedAuthority(status.name()), new SimpleGrantedAuthority("ROLE_" + role.name())));
+            }
+            AUTHORITIES.put(status, byRole);
+        }
+    }
+
+    Integer id;
+    String username;
+    @ToString.Exclude
+    String password;
+    UserRole role;
+    UserStatus status;
+    int credentialVersion;
+    int tokenGeneration;
+
+    public static UserPrincipal of(UserEntity user) {
+        return new UserPrincipal(user.getId(), user.getUsername(), user.getPassword(), user.getRole(),
+                user.getStatus(), user.getCredentialVersion(), user.getTokenGeneration());
+    }
+
+    /**
+     * Returns {@code null} when the token was not issued in stateless mode and lacks the user claims.
+     */
+    public static UserPrincipal of(VerifiedToken token) {
+        Integer id = token.getClaim(TokenClaims.USER_ID, Integer.class);
+        String role = token.getClaim(TokenClaims.ROLE, String.class);
+        String status = token.getClaim(TokenClaims.STATUS, String.class);
+        Integer credentialVersion = token.getClaim(TokenClaims.CREDENTIAL_VERSION, Integer.class);
+        if (id == null || role == null || status == null || credentialVersion == null) {
+            return null;
+        }
+        Integer tokenGeneration = token.getClaim(TokenClaims.TOKEN_GENERATION, Integer.class);
+        return new UserPrincipal(id, token.getSubject(), null, UserRole.valueOf(role), UserStatus.valueOf(status),
+                credentialVersion, tokenGeneration != null ? tokenGeneration : 0);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return AUTHORITIES.get(status).get(role);
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return status == UserStatus.ACTIVE;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.auth.models.requests;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class IntrospectionRequest {
+
+    @NotEmpty(message = "Tokens cannot be empty")
+    @Size(max = 1000, message = "At most 1000 tokens can be introspected at once")
+    private List<@NotBlank(message = "Token cannot be blank") String> tokens;
+}
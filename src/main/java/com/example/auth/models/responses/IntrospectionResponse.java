@@ -0,0 +1,12 @@
+package com.example.auth.models.responses;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class IntrospectionResponse {
+    private List<TokenIntrospection> tokens;
+}
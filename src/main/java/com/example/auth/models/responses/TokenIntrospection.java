@@ -0,0 +1,19 @@
+package com.example.auth.models.responses;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.UUID;
+
+@Value
+@Builder(toBuilder = true)
+public class TokenIntrospection {
+
+    public static final TokenIntrospection INACTIVE = TokenIntrospection.builder().build();
+
+    boolean active;
+    boolean revoked;
+    String subject;
+    Long exp;
+    UUID tokenId;
+}
@@ -0,0 +1,25 @@
+package com.example.auth.models.responses;
+
+import com.example.auth.models.enums.UserRole;
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.models.principals.UserPrincipal;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class UserResponse {
+    private Integer id;
+    private String username;
+    private UserRole role;
+    private UserStatus status;
+
+    public static UserResponse of(UserPrincipal principal) {
+        return UserResponse.builder()
+                .id(principal.getId())
+                .username(principal.getUsername())
+                .role(principal.getRole())
+                .status(principal.getStatus())
+                .build();
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.auth.models.tokens;
+
+import lombok.Value;
+
+import java.util.Date;
+import java.util.UUID;
+
+@Value
+public class IssuedToken {
+
+    String value;
+    UUID id;
+    Date expiration;
+}
@@ -0,0 +1,14 @@
+package com.example.auth.models.tokens;
+
+public final class TokenClaims {
+
+    public static final String USER_ID = "uid";
+    public static final String ROLE = "role";
+    public static final String STATUS = "status";
+    public static final String CREDENTIAL_VERSION = "cver";
+    public static final String TOKEN_GENERATION = "gen";
+    public static final String TOKEN_FAMILY = "fam";
+
+    private TokenClaims() {
+    }
+}
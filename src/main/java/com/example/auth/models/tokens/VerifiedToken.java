@@ -0,0 +1,38 @@
+package com.example.auth.models.tokens;
+
+import io.jsonwebtoken.Claims;
+import lombok.Value;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+@Value
+public class VerifiedToken {
+
+    UUID id;
+    String subject;
+    Date issuedAt;
+    Date expiration;
+    Map<String, Object> claims;
+
+    public static VerifiedToken of(UUID id, Claims claims) {
+        return new VerifiedToken(
+                id,
+                claims.getSubject(),
+                claims.getIssuedAt(),
+                claims.getExpiration(),
+                Collections.unmodifiableMap(new HashMap<>(claims)));
+    }
+
+    public <T> T getClaim(String name, Class<T> type) {
+        Object value = claims.get(name);
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    public boolean isExpired() {
+        return expiration != null && expiration.getTime() < System.currentTimeMillis();
+    }
+}
@@ -1,16 +1,65 @@
 package com.example.auth.repositories;
 
 import com.example.auth.models.entities.TokenEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 public interface TokenRepository extends JpaRepository<TokenEntity, Integer> {
 
-    @Query("SELECT t from TokenEntity t where t.user.id =:id and t.expired=false and t.revoked = false")
-    List<TokenEntity> findAllValidTokenByUser(Integer id);
+    @Query("SELECT t.tokenId as tokenId, t.expiresAt as expiresAt from TokenEntity t where t.user.id =:id and t.expired=false and t.revoked = false")
+    List<TokenExpiry> findAllValidTokenByUser(Integer id);
 
-    Optional<TokenEntity> findByToken(String token);
+    @Modifying
+    @Query("UPDATE TokenEntity t set t.expired = true, t.revoked = true where t.user.id =:id and t.expired=false and t.revoked = false")
+    int revokeAllValidTokenByUser(Integer id);
+
+    Optional<TokenEntity> findByTokenId(UUID tokenId);
+
+    @Query("SELECT t from TokenEntity t join fetch t.user where t.tokenId = :tokenId")
+    Optional<TokenEntity> findWithUserByTokenId(UUID tokenId);
+
+    @Modifying
+    @Query("UPDATE TokenEntity t set t.expired = true, t.revoked = true where t.id = :id and t.revoked = false")
+    int revokeIfValid(Integer id);
+
+    @Modifying
+    @Query("UPDATE TokenEntity t set t.expired = true, t.revoked = true where t.tokenId in :tokenIds and t.revoked = false")
+    int revokeAllByTokenIdIn(Collection<UUID> tokenIds);
+
+    @Query("SELECT t.tokenId as tokenId, t.expiresAt as expiresAt from TokenEntity t where t.familyId = :familyId and t.expired = false and t.revoked = false")
+    List<TokenExpiry> findAllValidTokenByFamily(UUID familyId);
+
+    @Modifying
+    @Query("UPDATE TokenEntity t set t.expired = true, t.revoked = true where t.familyId = :familyId and t.expired = false and t.revoked = false")
+    int revokeAllValidTokenByFamily(UUID familyId);
+
+    @Query("SELECT t.tokenId as tokenId, t.expiresAt as expiresAt from TokenEntity t where t.revoked = true and t.type <> com.example.auth.models.enums.TokenType.REFRESH and (t.expiresAt is null or t.expiresAt > :now)")
+    List<TokenExpiry> findAllRevokedTokensExpiringAfter(Instant now);
+
+    @Query("SELECT t.tokenId from TokenEntity t where t.tokenId in :tokenIds and (t.revoked = true or t.expired = true)")
+    List<UUID> findAllRevokedTokenIdsIn(Collection<UUID> tokenIds);
+
+    @Query("SELECT t.id from TokenEntity t where t.id > :lastId and t.expiresAt < :cutoff order by t.id")
+    List<Integer> findPurgeableTokenIds(Integer lastId, Instant cutoff, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE from TokenEntity t where t.id in :ids")
+    int deleteAllByIdIn(List<Integer> ids);
+
+    interface TokenExpiry {
+
+        UUID getTokenId();
+
+        Instant getExpiresAt();
+    }
 }
@@ -2,8 +2,14 @@ package com.example.auth.repositories;
 
 import com.example.auth.models.entities.UserEntity;
 import com.example.auth.models.enums.UserStatus;
+import com.example.auth.models.principals.UserPrincipal;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<UserEntity, Integer> {
@@ -12,5 +18,34 @@ public interface UserRepository extends JpaRepository<UserEntity, Integer> {
 
     Optional<UserEntity> findByUsername(String username);
 
-    Optional<UserEntity> findByUsernameAndStatus(String username, UserStatus status);
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.example.auth.models.principals.UserPrincipal(u.id, u.username, u.password, u.role, u.status, u.credentialVersion, u.tokenGeneration) from UserEntity u where u.username = :username and u.status = :status")
+    Optional<UserPrincipal> findPrincipalByUsernameAndStatus(String username, UserStatus status);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.example.auth.models.principals.UserPrincipal(u.id, u.username, u.password, u.role, u.status, u.credentialVersion, u.tokenGeneration) from UserEntity u where u.username in :usernames and u.status = :status")
+    List<UserPrincipal> findAllPrincipalsByUsernameInAndStatus(Collection<String> usernames, UserStatus status);
+
+    @Query("SELECT u.username as username, u.email as email from UserEntity u where u.username = :username or u.email = :email")
+    List<UserIdentity> findAllIdentitiesByUsernameOrEmail(@Param("username") String username, @Param("email") String email);
+
+    @Query("SELECT u.username from UserEntity u where u.status = :status")
+    List<String> findAllUsernamesByStatus(UserStatus status);
+
+    @Query("SELECT u.id as id, u.tokenGeneration as tokenGeneration from UserEntity u where u.tokenGeneration > 0")
+    List<TokenGeneration> findAllTokenGenerations();
+
+    interface UserIdentity {
+
+        String getUsername();
+
+        String getEmail();
+    }
+
+    interface TokenGeneration {
+
+        Integer getId();
+
+        int getTokenGeneration();
+    }
 }
@@ -1,12 +1,9 @@
 package com.example.auth.services;
 
+import com.example.auth.models.entities.UserEntity;
 import com.example.auth.models.requests.SignInRequest;
 import com.example.auth.models.requests.SignUpRequest;
 import com.example.auth.models.responses.AuthenticationResponse;
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
-
-import java.io.IOException;
 
 public interface IAuthService {
 
@@ -14,5 +11,7 @@ public interface IAuthService {
 
     AuthenticationResponse signUp(SignUpRequest request);
 
-    void refreshToken(HttpServletRequest request, HttpServletResponse response) throws IOException;
+    AuthenticationResponse refreshToken(String authorizationHeader);
+
+    void revokeAllUserTokens(UserEntity user);
 }
@@ -0,0 +1,9 @@
+package com.example.auth.services;
+
+import com.example.auth.models.requests.IntrospectionRequest;
+import com.example.auth.models.responses.IntrospectionResponse;
+
+public interface IIntrospectionService {
+
+    IntrospectionResponse introspect(IntrospectionRequest request);
+}
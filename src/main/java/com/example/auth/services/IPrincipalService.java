@@ -0,0 +1,12 @@
+package com.example.auth.services;
+
+import com.example.auth.models.principals.UserPrincipal;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface IPrincipalService extends UserDetailsService {
+
+    Map<String, UserPrincipal> loadActivePrincipals(Collection<String> usernames);
+}
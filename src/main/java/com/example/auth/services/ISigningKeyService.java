@@ -0,0 +1,21 @@
+package com.example.auth.services;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+
+import java.security.Key;
+import java.util.Map;
+
+public interface ISigningKeyService {
+
+    SignatureAlgorithm getSignatureAlgorithm();
+
+    String getSigningKeyId();
+
+    Key getSigningKey();
+
+    Key getVerificationKey(String keyId);
+
+    Map<String, Object> getJwks();
+
+    String getJwksETag();
+}
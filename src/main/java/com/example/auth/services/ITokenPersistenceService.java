@@ -0,0 +1,13 @@
+package com.example.auth.services;
+
+import com.example.auth.models.entities.TokenEntity;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+public interface ITokenPersistenceService {
+
+    void save(TokenEntity token);
+
+    void revokePending(Integer userId, Predicate<TokenEntity> filter, Consumer<TokenEntity> revoke);
+}
@@ -0,0 +1,6 @@
+package com.example.auth.services;
+
+public interface ITokenPurgeService {
+
+    long purge();
+}
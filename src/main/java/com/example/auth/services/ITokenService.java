@@ -1,9 +1,12 @@
 package com.example.auth.services;
 
+import com.example.auth.models.tokens.IssuedToken;
+import com.example.auth.models.tokens.VerifiedToken;
 import io.jsonwebtoken.Claims;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 public interface ITokenService {
@@ -12,12 +15,20 @@ public interface ITokenService {
 
     <T> T extractClaim(String token, Function<Claims, T> claimsResolver);
 
+    VerifiedToken verifyToken(String token);
+
     String buildToken(Map<String, Object> claims, UserDetails userDetails, String expirationTime);
 
     String generateToken(UserDetails userDetails);
 
+    IssuedToken issueAccessToken(UserDetails userDetails);
+
+    IssuedToken issueRefreshToken(UserDetails userDetails, UUID familyId);
+
     boolean isTokenValid(String token, UserDetails userDetails);
 
-    String generateRefreshToken(UserDetails userDetails);
+    boolean isTokenValid(VerifiedToken token, UserDetails userDetails);
+
+    boolean isStateless();
 
 }
@@ -2,31 +2,44 @@ package com.example.auth.services.impl;
 
 import com.example.auth.exceptions.BadRequestException;
 import com.example.auth.exceptions.ConflictException;
+import com.example.auth.exceptions.UnauthorizedException;
+import com.example.auth.invalidation.InvalidationBus;
+import com.example.auth.invalidation.InvalidationEvent;
+import com.example.auth.metrics.AuthMetrics;
+import com.example.auth.metrics.StartupTimer;
 import com.example.auth.models.entities.TokenEntity;
 import com.example.auth.models.entities.UserEntity;
 import com.example.auth.models.enums.TokenType;
 import com.example.auth.models.enums.UserRole;
 import com.example.auth.models.enums.UserStatus;
+import com.example.auth.models.principals.UserPrincipal;
 import com.example.auth.models.requests.SignInRequest;
 import com.example.auth.models.requests.SignUpRequest;
 import com.example.auth.models.responses.AuthenticationResponse;
+import com.example.auth.cache.RevocationIndex;
+import com.example.auth.models.tokens.IssuedToken;
+import com.example.auth.models.tokens.TokenClaims;
+import com.example.auth.models.tokens.VerifiedToken;
 import com.example.auth.repositories.TokenRepository;
 import com.example.auth.repositories.UserRepository;
 import com.example.auth.services.IAuthService;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
+import com.example.auth.services.ITokenPersistenceService;
+import io.jsonwebtoken.JwtException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.IOException;
+import java.time.Instant;
 import java.util.List;
+import java.util.UUID;
 
 
 @Service
@@ -35,105 +48,201 @@ import java.util.List;
 public class AuthService implements IAuthService {
 
     private final UserRepository userRepository;
-    private final ModelMapper modelMapper;
     private final PasswordEncoder passwordEncoder;
     private final TokenService tokenService;
     private final AuthenticationManager authenticationManager;
     private final TokenRepository tokenRepository;
-
+    private final RevocationIndex revocationIndex;
+    private final ITokenPersistenceService tokenPersistenceService;
+    private final AuthMetrics metrics;
+    private final InvalidationBus invalidationBus;
+    private final TransactionTemplate transactionTemplate;
+    private final StartupTimer startupTimer;
+
+    @Value("${authorization.token.generation-revocation}")
+    private boolean generationRevocation;
+
+    /**
+     * Credentials are checked before the write transaction starts, so the principal lookup can
+     * be served by a read replica and a failed sign-in never holds a primary connection.
+     * Signing in ends the user's other sessions, except for service accounts, which many
+     * resource-server instances sign in to at once.
+     */
     @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public AuthenticationResponse signIn(SignInRequest request) {
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.getUsername(), request.getPassword()
-                )
-        );
-        UserEntity user = userRepository.findByUsername(request.getUsername())
-                .orElseThrow(() -> new UsernameNotFoundException("User " + request.getUsername() + " not found"));
-        revokeAllUserTokens(user);
-        String accessToken = tokenService.generateToken(user);
-        saveUserToken(user, accessToken);
-        return AuthenticationResponse.builder()
-                .accessToken(accessToken)
-                .refreshToken(tokenService.generateRefreshToken(user))
-                .build();
+        try {
+            authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(
+                            request.getUsername(), request.getPassword()
+                    )
+            );
+        } catch (AuthenticationException e) {
+            metrics.getSignInFailure().increment();
+            throw e;
+        }
+        AuthenticationResponse response = transactionTemplate.execute(status -> {
+            UserEntity user = userRepository.findByUsername(request.getUsername())
+                    .orElseThrow(() -> new UsernameNotFoundException("User " + request.getUsername() + " not found"));
+            if (user.getRole() != UserRole.SERVICE) {
+                revokeAllUserTokens(user);
+            }
+            return issueTokens(user, UUID.randomUUID());
+        });
+        metrics.getSignInSuccess().increment();
+        startupTimer.recordSignIn();
+        return response;
     }
 
     @Override
     public AuthenticationResponse signUp(SignUpRequest request) {
-        if (userRepository.findByUsername(request.getUsername()).isPresent()) {
+        if (!request.getPassword().equals(request.getConfirmPassword())) {
+            throw new BadRequestException("Password should match!");
+        }
+        List<UserRepository.UserIdentity> identities = userRepository.findAllIdentitiesByUsernameOrEmail(request.getUsername(), request.getEmail());
+        if (identities.stream().anyMatch(identity -> identity.getUsername().equals(request.getUsername()))) {
             throw new ConflictException("User with given username already exists!");
         }
-        if (userRepository.findByEmail(request.getEmail()).isPresent()) {
+        if (!identities.isEmpty()) {
             throw new ConflictException("User with given e-mail already exists!");
         }
-        if (!request.getPassword().equals(request.getConfirmPassword())) {
-            throw new BadRequestException("Password should match!");
-        }
-        UserEntity user = modelMapper.map(request, UserEntity.class);
+        UserEntity user = UserEntity.of(request);
         user.setPassword(passwordEncoder.encode(request.getPassword()));
         user.setStatus(UserStatus.ACTIVE);
         user.setRole(UserRole.ORDINARY);
-        userRepository.save(user);
-        String accessToken = tokenService.generateToken(user);
-        saveUserToken(user, accessToken);
-        return AuthenticationResponse.builder()
-                .accessToken(accessToken)
-                .refreshToken(tokenService.generateRefreshToken(user))
-                .build();
+        try {
+            userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new ConflictException("User with given username or e-mail already exists!");
+        }
+        return issueTokens(user, UUID.randomUUID());
     }
 
-    private void revokeAllUserTokens(UserEntity user) {
-        List<TokenEntity> validUserTokens = tokenRepository.findAllValidTokenByUser(user.getId());
-        if (validUserTokens.isEmpty()) {
-            return;
+    /**
+     * Refresh tokens are single use. Each one is stored by its id, and presenting it marks the
+     * row revoked with a conditional update, so of two requests racing with the same token only
+     * one succeeds. Presenting a token that was already used means it was copied: the whole
+     * family descending from the original sign-in is revoked and the caller has to sign in again.
+     * It only counts as reuse while the family is still live: a token of a family already
+     * revoked, for example by a sign-in on another device, is just rejected.
+     * A service account only has the presented family rotated, leaving the sessions of its
+     * other instances alone.
+     */
+    @Override
+    @Transactional(dontRollbackOn = UnauthorizedException.class)
+    public AuthenticationResponse refreshToken(String authorizationHeader) {
+        if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
+            throw new UnauthorizedException();
         }
-
-        validUserTokens.forEach(token -> {
-            token.setRevoked(true);
-            token.setExpired(true);
-        });
-        tokenRepository.saveAll(validUserTokens);
+        VerifiedToken verifiedToken;
+        try {
+            verifiedToken = tokenService.verifyToken(authorizationHeader.substring(7));
+        } catch (JwtException e) {
+            throw new UnauthorizedException();
+        }
+        String familyClaim = verifiedToken.getClaim(TokenClaims.TOKEN_FAMILY, String.class);
+        if (familyClaim == null) {
+            throw new UnauthorizedException();
+        }
+        UUID familyId = UUID.fromString(familyClaim);
+        TokenEntity storedToken = tokenRepository.findWithUserByTokenId(verifiedToken.getId())
+                .filter(token -> token.getType() == TokenType.REFRESH && familyId.equals(token.getFamilyId()))
+                .orElseThrow(UnauthorizedException::new);
+        if (tokenRepository.revokeIfValid(storedToken.getId()) == 0) {
+            if (revokeTokenFamily(storedToken.getUser().getId(), familyId)) {
+                metrics.getRefreshReuse().increment();
+            }
+            throw new UnauthorizedException();
+        }
+        UserEntity user = storedToken.getUser();
+        if (user.getStatus() != UserStatus.ACTIVE || !tokenService.isTokenValid(verifiedToken, UserPrincipal.of(user))) {
+            throw new UnauthorizedException();
+        }
+        if (user.getRole() == UserRole.SERVICE) {
+            revokeTokenFamily(user.getId(), familyId);
+        } else {
+            revokeAllUserTokens(user);
+        }
+        AuthenticationResponse response = issueTokens(user, familyId);
+        metrics.getRefresh().increment();
+        return response;
     }
 
-    private void saveUserToken(UserEntity user, String token) {
-        TokenEntity tokenEntity = TokenEntity.builder()
-                .user(user)
-                .token(token)
-                .type(TokenType.BEARER)
-                .expired(false)
-                .revoked(false)
+    private AuthenticationResponse issueTokens(UserEntity user, UUID familyId) {
+        UserPrincipal principal = UserPrincipal.of(user);
+        IssuedToken accessToken = tokenService.issueAccessToken(principal);
+        saveUserToken(user, accessToken, TokenType.BEARER, familyId);
+        IssuedToken refreshToken = tokenService.issueRefreshToken(principal, familyId);
+        saveUserToken(user, refreshToken, TokenType.REFRESH, familyId);
+        return AuthenticationResponse.builder()
+                .accessToken(accessToken.getValue())
+                .refreshToken(refreshToken.getValue())
                 .build();
-        tokenRepository.save(tokenEntity);
+    }
 
+    /**
+     * Returns whether the family still had valid tokens. Every rotation stores the family's
+     * new refresh token before answering, so a family without any was already ended by a
+     * sign-in, a logout or a password change.
+     */
+    private boolean revokeTokenFamily(Integer userId, UUID familyId) {
+        tokenPersistenceService.revokePending(userId, token -> familyId.equals(token.getFamilyId()),
+                token -> revoke(token.getTokenId(), token.getExpiresAt()));
+        List<TokenRepository.TokenExpiry> familyTokens = tokenRepository.findAllValidTokenByFamily(familyId);
+        if (familyTokens.isEmpty()) {
+            return false;
+        }
+        tokenRepository.revokeAllValidTokenByFamily(familyId);
+        familyTokens.forEach(token -> revoke(token.getTokenId(), token.getExpiresAt()));
+        return true;
     }
 
+    /**
+     * Revokes every token issued to the user, stateless access tokens included: either by
+     * bumping the user's token generation, which the caller has to save, or row by row.
+     */
     @Override
-    public void refreshToken(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        final String authHeader = request.getHeader("Authorization");
-        final String refreshToken;
-        final String username;
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+    public void revokeAllUserTokens(UserEntity user) {
+        if (generationRevocation) {
+            user.setTokenGeneration(user.getTokenGeneration() + 1);
+            revocationIndex.revokeUserTokens(user.getId(), user.getTokenGeneration());
+            invalidationBus.publish(InvalidationEvent.userTokensBumped(user.getId(), user.getTokenGeneration()));
             return;
         }
-        refreshToken = authHeader.substring(7);
-        username = tokenService.extractUsername(refreshToken);
-        if (username != null) {
-            UserEntity user = userRepository.findByUsername(username).orElseThrow(() -> new UsernameNotFoundException("User " + username + " not found"));
-            if (tokenService.isTokenValid(refreshToken, user)) {
-                String accessToken = tokenService.generateToken(user);
-                revokeAllUserTokens(user);
-                saveUserToken(user, accessToken);
-
-                AuthenticationResponse authResponse = AuthenticationResponse.builder()
-                        .accessToken(accessToken)
-                        .refreshToken(refreshToken)
-                        .build();
-                new ObjectMapper().writeValue(response.getOutputStream(), authResponse);
-            }
+        tokenPersistenceService.revokePending(user.getId(), token -> true,
+                token -> revoke(token.getTokenId(), token.getExpiresAt()));
+        List<TokenRepository.TokenExpiry> validUserTokens = tokenRepository.findAllValidTokenByUser(user.getId());
+        if (validUserTokens.isEmpty()) {
+            return;
         }
 
+        tokenRepository.revokeAllValidTokenByUser(user.getId());
+        validUserTokens.forEach(token -> revoke(token.getTokenId(), token.getExpiresAt()));
     }
 
+    private void revoke(UUID tokenId, Instant expiresAt) {
+        revocationIndex.revoke(tokenId, expiresAt);
+        invalidationBus.publish(InvalidationEvent.tokenRevoked(tokenId, expiresAt));
+    }
 
+    /**
+     * Refresh tokens are written synchronously: rotation and reuse detection depend on the row
+     * being there when the token is presented.
+     */
+    private void saveUserToken(UserEntity user, IssuedToken token, TokenType type, UUID familyId) {
+        TokenEntity tokenEntity = TokenEntity.builder()
+                .user(user)
+                .tokenId(token.getId())
+                .expiresAt(token.getExpiration().toInstant())
+                .type(type)
+                .familyId(familyId)
+                .expired(false)
+                .revoked(false)
+                .build();
+        if (type == TokenType.REFRESH) {
+            tokenRepository.save(tokenEntity);
+        } else {
+            tokenPersistenceService.save(tokenEntity);
+        }
+    }
 }
@@ -0,0 +1,202 @@
+package com.example.auth.services.impl;
+
+import com.example.auth.cache.RevocationIndex;
+import com.example.auth.models.principals.UserPrincipal;
+import com.example.auth.models.requests.IntrospectionRequest;
+import com.example.auth.models.responses.IntrospectionResponse;
+import com.example.auth.models.responses.TokenIntrospection;
+import com.example.auth.models.tokens.TokenClaims;
+import com.example.auth.models.tokens.VerifiedToken;
+import com.example.auth.repositories.TokenRepository;
+import com.example.auth.services.IIntrospectionService;
+import com.example.auth.services.IPrincipalService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Answers a whole batch with at most one query per table: signature, expiry and in-memory
+ * revocation are checked per token, the tokens that pass are looked up together in the Token
+ * table, and the users of the tokens still active are read together through the principal
+ * cache.
+ * Results are cached by token digest for a short time, so a resource server introspecting
+ * the same token on every request mostly hits memory.
+ * <p>
+ * A token is only reported active if {@link com.example.auth.config.JwtAuthenticationFilter}
+ * would accept it as a bearer: refresh tokens are inactive, and the user must be active with
+ * the credential version and token generation the token was issued for.
+ */
+@Service
+public class IntrospectionService implements IIntrospectionService {
+
+    private final TokenService tokenService;
+    private final RevocationIndex revocationIndex;
+    private final TokenRepository tokenRepository;
+    private final IPrincipalService principalService;
+    private final Cache<String, CachedIntrospection> cache;
+
+    public IntrospectionService(TokenService tokenService,
+                                RevocationIndex revocationIndex,
+                                TokenRepository tokenRepository,
+                                IPrincipalService principalService,
+                                @Value("${authorization.introspection.cache.maximum-size}") long maximumSize,
+                                @Value("${authorization.introspection.cache.time-to-live}") Duration timeToLive) {
+        this.tokenService = tokenService;
+        this.revocationIndex = revocationIndex;
+        this.tokenRepository = tokenRepository;
+        this.principalService = principalService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .build();
+    }
+
+    @Override
+    public IntrospectionResponse introspect(IntrospectionRequest request) {
+        List<String> tokens = request.getTokens();
+        TokenIntrospection[] results = new TokenIntrospection[tokens.size()];
+        String[] digests = new String[tokens.size()];
+        VerifiedToken[] unresolved = new VerifiedToken[tokens.size()];
+        VerifiedToken[] principalChecks = new VerifiedToken[tokens.size()];
+        Set<String> subjects = new HashSet<>();
+        List<UUID> unresolvedIds = new ArrayList<>();
+        MessageDigest messageDigest = sha256();
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < tokens.size(); i++) {
+            digests[i] = HexFormat.of().formatHex(messageDigest.digest(tokens.get(i).getBytes(StandardCharsets.UTF_8)));
+            CachedIntrospection cached = cache.getIfPresent(digests[i]);
+            if (cached != null) {
+                results[i] = revalidate(cached, now);
+                if (results[i].isActive()) {
+                    principalChecks[i] = cached.token();
+                    subjects.add(cached.token().getSubject());
+                }
+                continue;
+            }
+            VerifiedToken token;
+            try {
+                token = tokenService.verifyToken(tokens.get(i));
+            } catch (JwtException | IllegalArgumentException e) {
+                results[i] = TokenIntrospection.INACTIVE;
+                cache.put(digests[i], new CachedIntrospection(null, results[i]));
+                continue;
+            }
+            if (token.getClaim(TokenClaims.TOKEN_FAMILY, String.class) != null) {
+                results[i] = TokenIntrospection.INACTIVE;
+                cache.put(digests[i], new CachedIntrospection(token, results[i]));
+                continue;
+            }
+            if (revocationIndex.isRevoked(token)) {
+                results[i] = introspection(token, true);
+                cache.put(digests[i], new CachedIntrospection(token, results[i]));
+                continue;
+            }
+            unresolved[i] = token;
+            unresolvedIds.add(token.getId());
+        }
+
+        if (!unresolvedIds.isEmpty()) {
+            Set<UUID> revokedIds = new HashSet<>(tokenRepository.findAllRevokedTokenIdsIn(unresolvedIds));
+            for (int i = 0; i < unresolved.length; i++) {
+                VerifiedToken token = unresolved[i];
+                if (token == null) {
+                    continue;
+                }
+                boolean revoked = revokedIds.contains(token.getId());
+                results[i] = introspection(token, revoked);
+                if (revoked) {
+                    revocationIndex.revoke(token.getId(), token.getExpiration());
+                    cache.put(digests[i], new CachedIntrospection(token, results[i]));
+                } else if (token.getSubject() == null) {
+                    results[i] = TokenIntrospection.INACTIVE;
+                    cache.put(digests[i], new CachedIntrospection(token, results[i]));
+                } else {
+                    principalChecks[i] = token;
+                    subjects.add(token.getSubject());
+                }
+            }
+        }
+
+        if (!subjects.isEmpty()) {
+            Map<String, UserPrincipal> principals = principalService.loadActivePrincipals(subjects);
+            for (int i = 0; i < principalChecks.length; i++) {
+                VerifiedToken token = principalChecks[i];
+                if (token == null) {
+                    continue;
+                }
+                if (!isPrincipalValid(token, principals.get(token.getSubject()))) {
+                    results[i] = TokenIntrospection.INACTIVE;
+                }
+                if (unresolved[i] != null) {
+                    cache.put(digests[i], new CachedIntrospection(token, results[i]));
+                }
+            }
+        }
+        return IntrospectionResponse.builder()
+                .tokens(Arrays.asList(results))
+                .build();
+    }
+
+    /**
+     * Re-checks a cached active result against expiry and local revocations; the user is
+     * checked afterwards with the rest of the batch.
+     */
+    private TokenIntrospection revalidate(CachedIntrospection cached, long now) {
+        TokenIntrospection result = cached.result();
+        if (!result.isActive()) {
+            return result;
+        }
+        if (result.getExp() * 1000 <= now) {
+            return result.toBuilder().active(false).build();
+        }
+        if (revocationIndex.isRevoked(cached.token())) {
+            return result.toBuilder().active(false).revoked(true).build();
+        }
+        return result;
+    }
+
+    /**
+     * The user checks the authentication filter applies, always against the current principal:
+     * unlike the filter in stateless mode, the token's own claims are not trusted here.
+     */
+    private boolean isPrincipalValid(VerifiedToken token, UserPrincipal principal) {
+        return principal != null && principal.isEnabled() && tokenService.isTokenValid(token, principal);
+    }
+
+    private static TokenIntrospection introspection(VerifiedToken token, boolean revoked) {
+        return TokenIntrospection.builder()
+                .active(!revoked)
+                .revoked(revoked)
+                .subject(token.getSubject())
+                .exp(token.getExpiration().getTime() / 1000)
+                .tokenId(token.getId())
+                .build();
+    }
+
+    private record CachedIntrospection(VerifiedToken token, TokenIntrospection result) {
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
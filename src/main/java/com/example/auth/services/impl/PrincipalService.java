@@ -0,0 +1,115 @@
+package com.example.auth.services.impl;
+
+import com.example.auth.cache.PrincipalCache;
+import com.example.auth.cache.UsernameFilter;
+import com.example.auth.datasource.ReadWriteRoutingDataSource;
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.models.principals.UserPrincipal;
+import com.example.auth.repositories.UserRepository;
+import com.example.auth.services.IPrincipalService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Loads active users through the username filter and the principal cache.
+ */
+@Service
+@RequiredArgsConstructor
+public class PrincipalService implements IPrincipalService {
+
+    private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+    private final UsernameFilter usernameFilter;
+    private final ReadWriteRoutingDataSource routingDataSource;
+
+    @Override
+    public UserDetails loadUserByUsername(String username) {
+        if (!usernameFilter.mightBeActive(username)) {
+            throw new UsernameNotFoundException("User " + username + " not found");
+        }
+        return principalCache.get(username, key -> findActivePrincipal(key)
+                .orElseThrow(() -> {
+                    usernameFilter.recordInactive(key);
+                    return new UsernameNotFoundException("User " + key + " not found");
+                }));
+    }
+
+    /**
+     * Returns the active users among {@code usernames}, reading those not cached with a
+     * single query.
+     */
+    @Override
+    public Map<String, UserPrincipal> loadActivePrincipals(Collection<String> usernames) {
+        Set<String> candidates = new HashSet<>();
+        for (String username : usernames) {
+            if (usernameFilter.mightBeActive(username)) {
+                candidates.add(username);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Map.of();
+        }
+        return principalCache.getAll(candidates, missing -> {
+            Map<String, UserPrincipal> principals = findActivePrincipals(missing);
+            missing.stream()
+                    .filter(username -> !principals.containsKey(username))
+                    .forEach(usernameFilter::recordInactive);
+            return principals;
+        });
+    }
+
+    /**
+     * Principals are read from a replica. A user missing there may have signed up on the
+     * primary moments ago, so the lookup is repeated on the primary before it counts as a miss.
+     * A principal evicted within the replica lag window is read from the primary only, so that
+     * the cache is not refilled with the row as it was before the change.
+     */
+    private Optional<UserPrincipal> findActivePrincipal(String username) {
+        if (routingDataSource.hasReplicas() && principalCache.isRecentlyInvalidated(username)) {
+            return routingDataSource.readFromPrimary(() -> userRepository.findPrincipalByUsernameAndStatus(username, UserStatus.ACTIVE));
+        }
+        Optional<UserPrincipal> principal = userRepository.findPrincipalByUsernameAndStatus(username, UserStatus.ACTIVE);
+        if (principal.isPresent() || !routingDataSource.hasReplicas()) {
+            return principal;
+        }
+        return routingDataSource.readFromPrimary(() -> userRepository.findPrincipalByUsernameAndStatus(username, UserStatus.ACTIVE));
+    }
+
+    /**
+     * The same replica rules as {@link #findActivePrincipal}, applied to the set: without
+     * replicas this is one query.
+     */
+    private Map<String, UserPrincipal> findActivePrincipals(Set<String> usernames) {
+        Set<String> fromReplica = new HashSet<>();
+        Set<String> fromPrimary = new HashSet<>();
+        for (String username : usernames) {
+            if (routingDataSource.hasReplicas() && principalCache.isRecentlyInvalidated(username)) {
+                fromPrimary.add(username);
+            } else {
+                fromReplica.add(username);
+            }
+        }
+        Map<String, UserPrincipal> principals = new HashMap<>();
+        if (!fromReplica.isEmpty()) {
+            userRepository.findAllPrincipalsByUsernameInAndStatus(fromReplica, UserStatus.ACTIVE)
+                    .forEach(principal -> principals.put(principal.getUsername(), principal));
+            if (routingDataSource.hasReplicas()) {
+                fromReplica.stream().filter(username -> !principals.containsKey(username)).forEach(fromPrimary::add);
+            }
+        }
+        if (!fromPrimary.isEmpty()) {
+            routingDataSource.readFromPrimary(() -> userRepository.findAllPrincipalsByUsernameInAndStatus(fromPrimary, UserStatus.ACTIVE))
+                    .forEach(principal -> principals.put(principal.getUsername(), principal));
+        }
+        return principals;
+    }
+}
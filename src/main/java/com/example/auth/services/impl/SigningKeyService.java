@@ -0,0 +1,217 @@
+package com.example.auth.services.impl;
+
+import com.example.auth.services.ISigningKeyService;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.KeyException;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ResourceUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the token signing keys, resolved once at startup.
+ * <p>
+ * Without a key store, tokens are signed with the shared HS256 secret as before. With a key
+ * store, the entry named by the key id signs (RS256 for RSA keys, ES256/384/512 for EC keys)
+ * and every other entry, including certificate-only entries for retired keys, stays valid
+ * for verification and is published in the JWKS. Tokens without a {@code kid} header are
+ * verified with the shared secret while one is configured, so switching algorithms does not
+ * invalidate tokens that were issued before the switch.
+ */
+@Service
+public class SigningKeyService implements ISigningKeyService {
+
+    private final SignatureAlgorithm signatureAlgorithm;
+    private final String signingKeyId;
+    private final Key signingKey;
+    private final Key secretKey;
+    private final Map<String, PublicKey> verificationKeys;
+    private final Map<String, Object> jwks;
+    private final String jwksETag;
+
+    public SigningKeyService(@Value("${authorization.token.secret}") String secret,
+                             @Value("${authorization.token.signing.key-store}") String keyStoreLocation,
+                             @Value("${authorization.token.signing.key-store-password}") String keyStorePassword,
+                             @Value("${authorization.token.signing.key-store-type}") String keyStoreType,
+                             @Value("${authorization.token.signing.key-id}") String keyId) {
+        this.secretKey = secret.isBlank() ? null : Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        if (keyStoreLocation.isBlank()) {
+            if (secretKey == null) {
+                throw new IllegalStateException("Either a token secret or a signing key store must be configured");
+            }
+            this.signatureAlgorithm = SignatureAlgorithm.HS256;
+            this.signingKeyId = null;
+            this.signingKey = secretKey;
+            this.verificationKeys = Collections.emptyMap();
+        } else {
+            KeyStore keyStore = loadKeyStore(keyStoreLocation, keyStorePassword, keyStoreType);
+            this.signingKeyId = keyId;
+            this.signingKey = loadPrivateKey(keyStore, keyId, keyStorePassword);
+            this.verificationKeys = loadPublicKeys(keyStore, keyId);
+            this.signatureAlgorithm = algorithmFor(verificationKeys.get(keyId));
+            signatureAlgorithm.assertValidSigningKey(signingKey);
+        }
+        this.jwks = Map.of("keys", jsonWebKeys(verificationKeys));
+        this.jwksETag = etag(verificationKeys);
+    }
+
+    @Override
+    public SignatureAlgorithm getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    @Override
+    public String getSigningKeyId() {
+        return signingKeyId;
+    }
+
+    @Override
+    public Key getSigningKey() {
+        return signingKey;
+    }
+
+    @Override
+    public Key getVerificationKey(String keyId) {
+        Key key = keyId == null ? secretKey : verificationKeys.get(keyId);
+        if (key == null) {
+            throw new KeyException("Unknown signing key: " + keyId);
+        }
+        return key;
+    }
+
+    @Override
+    public Map<String, Object> getJwks() {
+        return jwks;
+    }
+
+    @Override
+    public String getJwksETag() {
+        return jwksETag;
+    }
+
+    private static KeyStore loadKeyStore(String location, String password, String type) {
+        try (InputStream inputStream = ResourceUtils.getURL(location).openStream()) {
+            KeyStore keyStore = KeyStore.getInstance(type);
+            keyStore.load(inputStream, password.toCharArray());
+            return keyStore;
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot load signing key store " + location, e);
+        }
+    }
+
+    private static PrivateKey loadPrivateKey(KeyStore keyStore, String keyId, String password) {
+        try {
+            if (keyStore.getKey(keyId, password.toCharArray()) instanceof PrivateKey privateKey) {
+                return privateKey;
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot read signing key " + keyId, e);
+        }
+        throw new IllegalStateException("Signing key store has no private key entry " + keyId);
+    }
+
+    private static Map<String, PublicKey> loadPublicKeys(KeyStore keyStore, String signingKeyId) {
+        Map<String, PublicKey> keys = new LinkedHashMap<>();
+        try {
+            keys.put(signingKeyId, keyStore.getCertificate(signingKeyId).getPublicKey());
+            for (String alias : Collections.list(keyStore.aliases())) {
+                Certificate certificate = keyStore.getCertificate(alias);
+                if (certificate != null && !keys.containsKey(alias)) {
+                    algorithmFor(certificate.getPublicKey());
+                    keys.put(alias, certificate.getPublicKey());
+                }
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot read signing key store entries", e);
+        }
+        return Collections.unmodifiableMap(keys);
+    }
+
+    static SignatureAlgorithm algorithmFor(PublicKey key) {
+        if (key instanceof RSAPublicKey) {
+            return SignatureAlgorithm.RS256;
+        }
+        if (key instanceof ECPublicKey ecKey) {
+            return switch (ecKey.getParams().getCurve().getField().getFieldSize()) {
+                case 256 -> SignatureAlgorithm.ES256;
+                case 384 -> SignatureAlgorithm.ES384;
+                case 521 -> SignatureAlgorithm.ES512;
+                default -> throw new IllegalStateException("Unsupported EC curve for signing key");
+            };
+        }
+        throw new IllegalStateException("Unsupported signing key type " + key.getAlgorithm());
+    }
+
+    private static List<Map<String, Object>> jsonWebKeys(Map<String, PublicKey> keys) {
+        List<Map<String, Object>> jsonWebKeys = new ArrayList<>();
+        keys.forEach((keyId, key) -> {
+            SignatureAlgorithm algorithm = algorithmFor(key);
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            jwk.put("kid", keyId);
+            jwk.put("use", "sig");
+            jwk.put("alg", algorithm.getValue());
+            if (key instanceof RSAPublicKey rsaKey) {
+                jwk.put("kty", "RSA");
+                jwk.put("n", base64Url(rsaKey.getModulus(), 0));
+                jwk.put("e", base64Url(rsaKey.getPublicExponent(), 0));
+            } else if (key instanceof ECPublicKey ecKey) {
+                int fieldSize = ecKey.getParams().getCurve().getField().getFieldSize();
+                int length = (fieldSize + 7) / 8;
+                jwk.put("kty", "EC");
+                jwk.put("crv", "P-" + fieldSize);
+                jwk.put("x", base64Url(ecKey.getW().getAffineX(), length));
+                jwk.put("y", base64Url(ecKey.getW().getAffineY(), length));
+            }
+            jsonWebKeys.add(Collections.unmodifiableMap(jwk));
+        });
+        return Collections.unmodifiableList(jsonWebKeys);
+    }
+
+    /**
+     * The unsigned big-endian bytes of {@code value}, left-padded with zeros to {@code length}
+     * bytes, as unpadded base64url (RFC 7518 section 6).
+     */
+    static String base64Url(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        int start = bytes.length > 1 && bytes[0] == 0 ? 1 : 0;
+        int size = Math.max(bytes.length - start, length);
+        byte[] unsigned = new byte[size];
+        System.arraycopy(bytes, start, unsigned, size - (bytes.length - start), bytes.length - start);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(unsigned);
+    }
+
+    private static String etag(Map<String, PublicKey> keys) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            keys.forEach((keyId, key) -> {
+                digest.update(keyId.getBytes(StandardCharsets.UTF_8));
+                digest.update(key.getEncoded());
+            });
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
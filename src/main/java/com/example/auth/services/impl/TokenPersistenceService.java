@@ -0,0 +1,299 @@
+package com.example.auth.services.impl;
+
+import com.example.auth.cache.RevocationIndex;
+import com.example.auth.invalidation.InvalidationBus;
+import com.example.auth.invalidation.InvalidationEvent;
+import com.example.auth.metrics.AuthMetrics;
+import com.example.auth.models.entities.TokenEntity;
+import com.example.auth.repositories.TokenRepository;
+import com.example.auth.services.ITokenPersistenceService;
+import com.example.auth.util.LoggingUtil;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Persists issued tokens. With write-behind enabled, tokens are queued once the issuing
+ * transaction commits and a single writer thread inserts them in JDBC batches, flushing
+ * when a batch is full or {@code max-delay} has passed since its first token.
+ * <p>
+ * Every token is tracked per user from {@link #save} until its row has committed, and
+ * revocations and the writer synchronize on that user's entry: a revocation either sees the
+ * token as pending or, once the row has committed, finds it in the table. A failed batch is
+ * retried with backoff and then written row by row; a token whose row still cannot be
+ * written is revoked, so that no issued token outlives a revocation of its user.
+ */
+@Service
+public class TokenPersistenceService implements ITokenPersistenceService, SmartLifecycle {
+
+    private static final Log log = LogFactory.getLog(TokenPersistenceService.class);
+
+    private final TokenRepository tokenRepository;
+    private final RevocationIndex revocationIndex;
+    private final InvalidationBus invalidationBus;
+    private final AuthMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean writeBehind;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final long offerTimeoutNanos;
+    private final int retryAttempts;
+    private final long retryBackoffMillis;
+    private final BlockingQueue<TokenEntity> queue;
+    private final ConcurrentHashMap<Integer, Set<TokenEntity>> pending = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private Thread writer;
+
+    public TokenPersistenceService(TokenRepository tokenRepository,
+                                   RevocationIndex revocationIndex,
+                                   InvalidationBus invalidationBus,
+                                   AuthMetrics metrics,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${authorization.token.write-behind.enabled}") boolean writeBehind,
+                                   @Value("${authorization.token.write-behind.batch-size}") int batchSize,
+                                   @Value("${authorization.token.write-behind.max-delay}") Duration maxDelay,
+                                   @Value("${authorization.token.write-behind.queue-capacity}") int queueCapacity,
+                                   @Value("${authorization.token.write-behind.offer-timeout}") Duration offerTimeout,
+                                   @Value("${authorization.token.write-behind.retry-attempts}") int retryAttempts,
+                                   @Value("${authorization.token.write-behind.retry-backoff}") Duration retryBackoff) {
+        this.tokenRepository = tokenRepository;
+        this.revocationIndex = revocationIndex;
+        this.invalidationBus = invalidationBus;
+        this.metrics = metrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Fallback writes and late revocations run from afterCompletion, where the issuing
+        // transaction's resources are still bound; joining it would write nothing.
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.writeBehind = writeBehind;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.retryAttempts = Math.max(1, retryAttempts);
+        this.retryBackoffMillis = retryBackoff.toMillis();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @Override
+    public void save(TokenEntity token) {
+        if (!writeBehind) {
+            tokenRepository.save(token);
+            return;
+        }
+        pending.compute(userId(token), (userId, tokens) -> {
+            Set<TokenEntity> userTokens = tokens != null ? tokens : Collections.newSetFromMap(new IdentityHashMap<>());
+            userTokens.add(token);
+            return userTokens;
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        enqueue(token);
+                    } else {
+                        untrack(List.of(token));
+                    }
+                }
+            });
+        } else {
+            enqueue(token);
+        }
+    }
+
+    /**
+     * Tokens not passed here have committed rows by the time this returns, so the caller
+     * revokes those with its queries afterwards.
+     */
+    @Override
+    public void revokePending(Integer userId, Predicate<TokenEntity> filter, Consumer<TokenEntity> revoke) {
+        pending.computeIfPresent(userId, (id, tokens) -> {
+            tokens.stream().filter(filter).forEach(revoke);
+            return tokens;
+        });
+    }
+
+    /**
+     * A full queue blocks the caller for up to {@code offer-timeout}; after that the caller
+     * writes its own token, so request threads slow down instead of tokens being dropped.
+     */
+    private void enqueue(TokenEntity token) {
+        try {
+            if (running && queue.offer(token, offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        write(List.of(token));
+    }
+
+    private void runWriter() {
+        List<TokenEntity> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                TokenEntity first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    TokenEntity next = remaining > 0 && running ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                queue.drainTo(batch);
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<TokenEntity> tokens) {
+        for (int attempt = 1; attempt <= retryAttempts; attempt++) {
+            if (insert(tokens)) {
+                untrack(tokens);
+                return;
+            }
+            if (attempt < retryAttempts && !backOff(attempt)) {
+                break;
+            }
+        }
+        for (TokenEntity token : tokens) {
+            if (tokens.size() == 1 || !insert(List.of(token))) {
+                log.error("Revoking token " + token.getTokenId() + " whose row could not be written");
+                metrics.getTokenWriteRevoked().increment();
+                revocationIndex.revoke(token.getTokenId(), token.getExpiresAt());
+                invalidationBus.publish(InvalidationEvent.tokenRevoked(token.getTokenId(), token.getExpiresAt()));
+            }
+            untrack(List.of(token));
+        }
+    }
+
+    /**
+     * Tokens revoked while still pending are not in the table yet, so the revocation index
+     * decides how they are written.
+     */
+    private boolean insert(List<TokenEntity> tokens) {
+        try {
+            tokens.forEach(token -> {
+                token.setId(null);
+                if (revocationIndex.isRevoked(token.getTokenId())) {
+                    token.setRevoked(true);
+                    token.setExpired(true);
+                }
+            });
+            transactionTemplate.executeWithoutResult(status -> tokenRepository.saveAll(tokens));
+            return true;
+        } catch (RuntimeException e) {
+            metrics.getTokenWriteFailure().increment();
+            LoggingUtil.logException(e, log);
+            return false;
+        }
+    }
+
+    private boolean backOff(int attempt) {
+        try {
+            Thread.sleep(retryBackoffMillis << (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Stops tracking committed or abandoned tokens. A token revoked after its insert checked
+     * the revocation index is revoked in the table, since the revoking request may have
+     * queried the table before the insert committed.
+     */
+    private void untrack(List<TokenEntity> tokens) {
+        List<UUID> revokedLate = new ArrayList<>();
+        for (TokenEntity token : tokens) {
+            pending.computeIfPresent(userId(token), (userId, userTokens) -> {
+                userTokens.remove(token);
+                if (token.getId() != null && !token.isRevoked() && revocationIndex.isRevoked(token.getTokenId())) {
+                    revokedLate.add(token.getTokenId());
+                }
+                return userTokens.isEmpty() ? null : userTokens;
+            });
+        }
+        if (!revokedLate.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> tokenRepository.revokeAllByTokenIdIn(revokedLate));
+            } catch (RuntimeException e) {
+                metrics.getTokenWriteFailure().increment();
+                LoggingUtil.logException(e, log);
+            }
+        }
+    }
+
+    private static Integer userId(TokenEntity token) {
+        return token.getUser().getId();
+    }
+
+    @Override
+    public void start() {
+        if (!writeBehind) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::runWriter, "token-write-behind");
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Token write-behind queue flushed");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops after the web server so that requests still in flight can enqueue their tokens
+     * before the final flush.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.auth.services.impl;
+
+import com.example.auth.metrics.AuthMetrics;
+import com.example.auth.repositories.TokenRepository;
+import com.example.auth.services.ITokenPurgeService;
+import com.example.auth.util.LoggingUtil;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Deletes tokens whose expiry lies more than {@code retention} in the past. Rows are
+ * removed in id order, one short transaction per chunk, so no statement holds row locks
+ * for long. On PostgreSQL a session advisory lock keeps other nodes from purging at the
+ * same time.
+ * <p>
+ * The purge sleeps between chunks and can run for minutes, so the scheduler has a thread
+ * per scheduled job ({@code spring.task.scheduling.pool.size}); otherwise the revocation
+ * sweep, the username filter rebuild and the replica health check would wait for it.
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenPurgeService implements ITokenPurgeService {
+
+    private static final Log log = LogFactory.getLog(TokenPurgeService.class);
+    private static final long ADVISORY_LOCK_KEY = 0x546f6b656e5075L;
+
+    private final TokenRepository tokenRepository;
+    private final DataSource dataSource;
+    private final AuthMetrics metrics;
+
+    @Value("${authorization.token.purge.enabled}")
+    private boolean enabled;
+
+    @Value("${authorization.token.purge.retention}")
+    private Duration retention;
+
+    @Value("${authorization.token.purge.chunk-size}")
+    private int chunkSize;
+
+    @Value("${authorization.token.purge.chunk-pause}")
+    private Duration chunkPause;
+
+    @Value("${authorization.token.purge.cluster-lock}")
+    private boolean clusterLock;
+
+    @Scheduled(initialDelayString = "${authorization.token.purge.interval}", fixedDelayString = "${authorization.token.purge.interval}")
+    void scheduledPurge() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            purge();
+        } catch (RuntimeException e) {
+            LoggingUtil.logException(e, log);
+        }
+    }
+
+    @Override
+    public long purge() {
+        if (!clusterLock) {
+            return purgeChunks();
+        }
+        try (Connection lockConnection = dataSource.getConnection()) {
+            if (!isPostgres(lockConnection)) {
+                return purgeChunks();
+            }
+            if (!tryAdvisoryLock(lockConnection)) {
+                log.info("Token purge skipped, another node holds the purge lock");
+                return 0;
+            }
+            try {
+                return purgeChunks();
+            } finally {
+                advisoryUnlock(lockConnection);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Token purge lock failed", e);
+        }
+    }
+
+    private long purgeChunks() {
+        long start = System.currentTimeMillis();
+        Instant cutoff = Instant.ofEpochMilli(start).minus(retention);
+        long purged = 0;
+        int lastId = 0;
+        List<Integer> ids = tokenRepository.findPurgeableTokenIds(lastId, cutoff, Limit.of(chunkSize));
+        while (!ids.isEmpty()) {
+            purged += tokenRepository.deleteAllByIdIn(ids);
+            lastId = ids.get(ids.size() - 1);
+            pause();
+            ids = tokenRepository.findPurgeableTokenIds(lastId, cutoff, Limit.of(chunkSize));
+        }
+        long duration = System.currentTimeMillis() - start;
+        metrics.getTokenPurge().record(Duration.ofMillis(duration));
+        metrics.getTokenPurged().increment(purged);
+        log.info("Purged " + purged + " tokens in " + duration + " ms");
+        return purged;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(chunkPause.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isPostgres(Connection connection) throws SQLException {
+        return "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+    }
+
+    private boolean tryAdvisoryLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, ADVISORY_LOCK_KEY);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private void advisoryUnlock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            statement.setLong(1, ADVISORY_LOCK_KEY);
+            statement.execute();
+        }
+    }
+}
@@ -1,93 +1,137 @@
 package com.example.auth.services.impl;
 
+import com.example.auth.jwt.JwtCodec;
+import com.example.auth.metrics.AuthMetrics;
+import com.example.auth.models.principals.UserPrincipal;
+import com.example.auth.models.tokens.IssuedToken;
+import com.example.auth.models.tokens.TokenClaims;
+import com.example.auth.models.tokens.VerifiedToken;
 import com.example.auth.services.ITokenService;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
-import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
+@RequiredArgsConstructor
 public class TokenService implements ITokenService {
 
-    @Value("${authorization.token.secret}")
-    private String secretKey;
-
     @Value("${authorization.access-token.expiration-time}")
     private String accessTokenExpirationTime;
 
     @Value("${authorization.refresh-token.expiration-time}")
     private String refreshTokenExpirationTime;
 
+    @Value("${authorization.access-token.stateless}")
+    private boolean stateless;
+
+    @Value("${authorization.token.generation-revocation}")
+    private boolean generationRevocation;
+
+    private final AuthMetrics metrics;
+
+    private final JwtCodec jwtCodec;
+
     @Override
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
-    private Claims extractClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    @Override
+    public VerifiedToken verifyToken(String token) {
+        return metrics.getTokenVerify().record(() -> jwtCodec.decode(token));
     }
 
     @Override
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractClaims(token);
+        final Claims claims = Jwts.claims(verifyToken(token).getClaims());
         return claimsResolver.apply(claims);
     }
 
     @Override
     public String generateToken(UserDetails userDetails) {
-        return buildToken(new HashMap<>(), userDetails, accessTokenExpirationTime);
+        return issueAccessToken(userDetails).getValue();
+    }
+
+    @Override
+    public IssuedToken issueAccessToken(UserDetails userDetails) {
+        return issueToken(userClaims(userDetails), userDetails, accessTokenExpirationTime);
+    }
+
+    @Override
+    public IssuedToken issueRefreshToken(UserDetails userDetails, UUID familyId) {
+        Map<String, Object> claims = userClaims(userDetails);
+        claims.put(TokenClaims.TOKEN_FAMILY, familyId.toString());
+        return issueToken(claims, userDetails, refreshTokenExpirationTime);
+    }
+
+    @Override
+    public boolean isStateless() {
+        return stateless;
     }
 
 
     @Override
     public String buildToken(Map<String, Object> claims, UserDetails userDetails, String expirationTime) {
-        return Jwts
-                .builder()
-                .setClaims(claims)
-                .setSubject(userDetails.getUsername())
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + Long.parseLong(expirationTime)))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
-                .compact();
+        return issueToken(claims, userDetails, expirationTime).getValue();
+    }
+
+    private IssuedToken issueToken(Map<String, Object> claims, UserDetails userDetails, String expirationTime) {
+        long now = System.currentTimeMillis();
+        Date expiration = new Date(now + Long.parseLong(expirationTime));
+        UUID id = UUID.randomUUID();
+        String token = metrics.getTokenSign().record(() ->
+                jwtCodec.encode(claims, id, userDetails.getUsername(), new Date(now), expiration));
+        return new IssuedToken(token, id, expiration);
     }
 
     @Override
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+        return isTokenValid(verifyToken(token), userDetails);
     }
 
     @Override
-    public String generateRefreshToken(UserDetails userDetails) {
-        return buildToken(new HashMap<>(), userDetails, refreshTokenExpirationTime);
+    public boolean isTokenValid(VerifiedToken token, UserDetails userDetails) {
+        return token.getSubject().equals(userDetails.getUsername())
+                && !token.isExpired()
+                && isCredentialVersionCurrent(token, userDetails)
+                && isTokenGenerationCurrent(token, userDetails);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExiration(token).before(new Date());
+    private Map<String, Object> userClaims(UserDetails userDetails) {
+        Map<String, Object> claims = new HashMap<>();
+        if (stateless && userDetails instanceof UserPrincipal principal) {
+            claims.put(TokenClaims.USER_ID, principal.getId());
+            claims.put(TokenClaims.ROLE, principal.getRole().name());
+            claims.put(TokenClaims.STATUS, principal.getStatus().name());
+            claims.put(TokenClaims.CREDENTIAL_VERSION, principal.getCredentialVersion());
+        }
+        if (generationRevocation && userDetails instanceof UserPrincipal principal) {
+            claims.put(TokenClaims.USER_ID, principal.getId());
+            claims.put(TokenClaims.TOKEN_GENERATION, principal.getTokenGeneration());
+        }
+        return claims;
     }
 
-    private Date extractExiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private boolean isCredentialVersionCurrent(VerifiedToken token, UserDetails userDetails) {
+        Integer credentialVersion = token.getClaim(TokenClaims.CREDENTIAL_VERSION, Integer.class);
+        return credentialVersion == null
+                || !(userDetails instanceof UserPrincipal principal)
+                || credentialVersion == principal.getCredentialVersion();
     }
 
-
-    private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private boolean isTokenGenerationCurrent(VerifiedToken token, UserDetails userDetails) {
+        Integer tokenGeneration = token.getClaim(TokenClaims.TOKEN_GENERATION, Integer.class);
+        return tokenGeneration == null
+                || !(userDetails instanceof UserPrincipal principal)
+                || tokenGeneration >= principal.getTokenGeneration();
     }
 }
@@ -1,12 +1,14 @@
 package com.example.auth.services.impl;
 
 import com.example.auth.exceptions.BadRequestException;
+import com.example.auth.exceptions.NotFoundException;
 import com.example.auth.models.entities.UserEntity;
 import com.example.auth.models.requests.ChangePasswordRequest;
 import com.example.auth.repositories.UserRepository;
+import com.example.auth.services.IAuthService;
 import com.example.auth.services.IUserService;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -18,11 +20,18 @@ public class UserService implements IUserService {
 
     private final PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
+    private final IAuthService authService;
 
+    /**
+     * Tokens issued for the old password are revoked with the change, since stateless access
+     * tokens would otherwise stay valid until they expire.
+     */
     @Override
+    @Transactional
     public void changePassword(ChangePasswordRequest request, Principal principal) {
 
-        UserEntity user = (UserEntity) ((UsernamePasswordAuthenticationToken) principal).getPrincipal();
+        UserEntity user = userRepository.findByUsername(principal.getName())
+                .orElseThrow(() -> new NotFoundException("User not found"));
 
         if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPassword())) {
             throw new IllegalStateException("Wrong password!");
@@ -33,6 +42,8 @@ public class UserService implements IUserService {
         }
 
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+        user.setCredentialVersion(user.getCredentialVersion() + 1);
+        authService.revokeAllUserTokens(user);
 
         userRepository.save(user);
 
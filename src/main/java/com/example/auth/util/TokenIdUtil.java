@@ -0,0 +1,19 @@
+package com.example.auth.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+public class TokenIdUtil {
+
+    /**
+     * Id for tokens issued before tokens carried a {@code jti}; db/upgrade-postgresql.sql
+     * stores the same name-based UUID for their rows.
+     */
+    public static UUID of(String token) {
+        return UUID.nameUUIDFromBytes(token.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static UUID of(String jti, String token) {
+        return jti != null ? UUID.fromString(jti) : of(token);
+    }
+}
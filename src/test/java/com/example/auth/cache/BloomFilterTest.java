@@ -0,0 +1,59 @@
+package com.example.auth.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    /**
+     * m = -n ln p / (ln 2)^2 bits, rounded up to whole words, and k = m / n ln 2 hashes.
+     */
+    @Test
+    void sizedForExpectedInsertionsAndRate() {
+        BloomFilter bloomFilter = new BloomFilter(1000, 0.01);
+
+        assertEquals(9600L, ReflectionTestUtils.getField(bloomFilter, "bitCount"));
+        assertEquals(7, ReflectionTestUtils.getField(bloomFilter, "hashCount"));
+    }
+
+    @Test
+    void emptyExpectationStillHoldsOneWord() {
+        BloomFilter bloomFilter = new BloomFilter(0, 0.01);
+        bloomFilter.put(1, 2);
+
+        assertEquals(64L, ReflectionTestUtils.getField(bloomFilter, "bitCount"));
+        assertTrue(bloomFilter.mightContain(1, 2));
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        int insertions = 10_000;
+        BloomFilter bloomFilter = new BloomFilter(insertions, 0.01);
+        SplittableRandom random = new SplittableRandom(42);
+        long[] high = new long[insertions];
+        long[] low = new long[insertions];
+        for (int i = 0; i < insertions; i++) {
+            high[i] = random.nextLong();
+            low[i] = random.nextLong();
+            bloomFilter.put(high[i], low[i]);
+        }
+        for (int i = 0; i < insertions; i++) {
+            assertTrue(bloomFilter.mightContain(high[i], low[i]));
+        }
+
+        int probes = 100_000;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (bloomFilter.mightContain(random.nextLong(), random.nextLong())) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < 0.015, "false positive rate " + rate);
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.auth.cache;
+
+import com.example.auth.models.enums.UserRole;
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.models.principals.UserPrincipal;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrincipalCacheTest {
+
+    private final PrincipalCache principalCache = new PrincipalCache(1000, Duration.ofMinutes(5), Duration.ofSeconds(5));
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        UserPrincipal principal = principal("user", 0);
+        Function<String, UserPrincipal> loader = username -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return principal;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<UserPrincipal>> callers = new ArrayList<>();
+            callers.add(executor.submit(() -> principalCache.get("user", loader)));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                callers.add(executor.submit(() -> principalCache.get("user", loader)));
+            }
+            while (principalCache.hitCount() < 7) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            for (Future<UserPrincipal> caller : callers) {
+                assertSame(principal, caller.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(1, principalCache.missCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        UserPrincipal principal = principal("user", 0);
+        assertThrows(IllegalStateException.class, () -> principalCache.get("user", username -> {
+            throw new IllegalStateException("database unavailable");
+        }));
+
+        assertSame(principal, principalCache.get("user", username -> principal));
+        assertSame(principal, principalCache.get("user", username -> principal("user", 1)));
+    }
+
+    /**
+     * A load that read the row before the update must not leave that row in the cache once
+     * the eviction for the update has run.
+     */
+    @Test
+    void evictionDuringLoadDropsStalePrincipal() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        UserPrincipal stale = principal("user", 0);
+        UserPrincipal fresh = principal("user", 1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<UserPrincipal> inFlight = executor.submit(() -> principalCache.get("user", username -> {
+                loading.countDown();
+                await(release);
+                return stale;
+            }));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            principalCache.evict("user");
+            release.countDown();
+            assertSame(stale, inFlight.get(10, TimeUnit.SECONDS));
+
+            assertSame(fresh, principalCache.get("user", username -> fresh));
+            assertTrue(principalCache.isRecentlyInvalidated("user"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void evictionInTransactionRepeatsAfterCommit() {
+        UserPrincipal stale = principal("user", 0);
+        UserPrincipal fresh = principal("user", 1);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            principalCache.evict("user");
+            // A concurrent request reads the row before the transaction commits.
+            principalCache.get("user", username -> stale);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertSame(fresh, principalCache.get("user", username -> fresh));
+        assertEquals(2, principalCache.invalidationCount());
+    }
+
+    @Test
+    void bulkLoadLeavesOutAndDoesNotCacheMissingUsers() {
+        UserPrincipal first = principal("first", 0);
+        Map<String, UserPrincipal> principals = principalCache.getAll(List.of("first", "missing"),
+                usernames -> Map.of("first", first));
+
+        assertEquals(Map.of("first", first), principals);
+        UserPrincipal missing = principal("missing", 0);
+        assertSame(missing, principalCache.get("missing", username -> missing));
+        assertSame(first, principalCache.get("first", username -> principal("first", 1)));
+    }
+
+    /**
+     * Each call claims one username the other needs before either loads, which deadlocks if a
+     * call waits on the other's load before completing its own.
+     */
+    @Test
+    void overlappingBulkLoadsDoNotDeadlock() throws Exception {
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        CountDownLatch secondClaimed = new CountDownLatch(1);
+        Map<String, AtomicInteger> loads = Map.of("a", new AtomicInteger(), "b", new AtomicInteger());
+        Function<Set<String>, Map<String, UserPrincipal>> loader = usernames -> {
+            usernames.forEach(username -> loads.get(username).incrementAndGet());
+            return usernames.stream().collect(Collectors.toMap(Function.identity(), username -> principal(username, 0)));
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Map<String, UserPrincipal>> first = executor.submit(() -> principalCache.getAll(
+                    claimingInOrder("a", firstClaimed, secondClaimed, "b"), loader));
+            Future<Map<String, UserPrincipal>> second = executor.submit(() -> principalCache.getAll(
+                    claimingInOrder("b", secondClaimed, firstClaimed, "a"), loader));
+
+            assertEquals(Set.of("a", "b"), first.get(10, TimeUnit.SECONDS).keySet());
+            assertEquals(Set.of("a", "b"), second.get(10, TimeUnit.SECONDS).keySet());
+            assertEquals(1, loads.get("a").get());
+            assertEquals(1, loads.get("b").get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Yields {@code first}, then waits for the other call to claim its first username before
+     * yielding {@code second}, so both calls hold one load when they reach the other's.
+     */
+    private static Collection<String> claimingInOrder(String first, CountDownLatch claimed,
+                                                      CountDownLatch otherClaimed, String second) {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<>() {
+                    private int position;
+
+                    @Override
+                    public boolean hasNext() {
+                        return position < 2;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (position++ == 0) {
+                            return first;
+                        }
+                        claimed.countDown();
+                        await(otherClaimed);
+                        return second;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return 2;
+            }
+        };
+    }
+
+    private static UserPrincipal principal(String username, int credentialVersion) {
+        return new UserPrincipal(1, username, "password", UserRole.ORDINARY, UserStatus.ACTIVE, credentialVersion, 0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.auth.cache;
+
+import com.example.auth.models.tokens.TokenClaims;
+import com.example.auth.models.tokens.VerifiedToken;
+import com.example.auth.repositories.TokenRepository;
+import com.example.auth.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class RevocationIndexTest {
+
+    private static final long ACCESS_TOKEN_LIFETIME = 900_000;
+
+    private final RevocationIndex revocationIndex = revocationIndex(1000, ACCESS_TOKEN_LIFETIME);
+
+    @Test
+    void revokedTokenIsRevoked() {
+        UUID revoked = UUID.randomUUID();
+        revocationIndex.revoke(revoked, Instant.now().plusSeconds(60));
+
+        assertTrue(revocationIndex.isRevoked(revoked));
+        assertFalse(revocationIndex.isRevoked(UUID.randomUUID()));
+        assertEquals(1, revocationIndex.size());
+    }
+
+    @Test
+    void revocationEndsAtTokenExpiry() throws InterruptedException {
+        UUID expiring = UUID.randomUUID();
+        UUID expired = UUID.randomUUID();
+        revocationIndex.revoke(expiring, Instant.now().plusMillis(100));
+        revocationIndex.revoke(expired, new Date(System.currentTimeMillis() - 1));
+
+        assertTrue(revocationIndex.isRevoked(expiring));
+        assertFalse(revocationIndex.isRevoked(expired));
+        assertEquals(1, revocationIndex.size());
+
+        Thread.sleep(150);
+        assertFalse(revocationIndex.isRevoked(expiring));
+        revocationIndex.sweep();
+        assertEquals(0, revocationIndex.size());
+    }
+
+    /**
+     * A row without a stored expiry is kept for one access token lifetime.
+     */
+    @Test
+    void tokenWithoutExpiryIsRevokedForOneAccessTokenLifetime() throws InterruptedException {
+        RevocationIndex shortLived = revocationIndex(1000, 100);
+        UUID tokenId = UUID.randomUUID();
+        shortLived.revoke(tokenId, (Instant) null);
+        revocationIndex.revoke(tokenId, (Date) null);
+
+        assertTrue(shortLived.isRevoked(tokenId));
+        Thread.sleep(150);
+        assertFalse(shortLived.isRevoked(tokenId));
+        assertTrue(revocationIndex.isRevoked(tokenId));
+    }
+
+    @Test
+    void tokensBelowUserGenerationAreRevoked() {
+        revocationIndex.revokeUserTokens(1, 2);
+        revocationIndex.revokeUserTokens(1, 1);
+
+        assertTrue(revocationIndex.isRevoked(token(1, 0)));
+        assertTrue(revocationIndex.isRevoked(token(1, 1)));
+        assertFalse(revocationIndex.isRevoked(token(1, 2)));
+        assertFalse(revocationIndex.isRevoked(token(2, 0)));
+        assertFalse(revocationIndex.isRevoked(token(1, null)));
+    }
+
+    /**
+     * Ids revoked while a sweep rebuilds the Bloom filter must reach the filter that the
+     * sweep installs.
+     */
+    @Test
+    void tokensRevokedDuringSweepStayRevoked() throws Exception {
+        RevocationIndex index = revocationIndex(16, ACCESS_TOKEN_LIFETIME);
+        for (int i = 0; i < 100_000; i++) {
+            index.revoke(UUID.randomUUID(), Instant.now().plusSeconds(60));
+        }
+        AtomicBoolean revoking = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            Future<?> sweeper = executor.submit(() -> {
+                while (revoking.get()) {
+                    index.sweep();
+                }
+            });
+            List<Future<List<UUID>>> revokers = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                revokers.add(executor.submit(() -> {
+                    List<UUID> ids = new ArrayList<>();
+                    for (int i = 0; i < 5000; i++) {
+                        UUID id = UUID.randomUUID();
+                        index.revoke(id, Instant.now().plusSeconds(60));
+                        ids.add(id);
+                    }
+                    return ids;
+                }));
+            }
+            List<UUID> revoked = new ArrayList<>();
+            for (Future<List<UUID>> revoker : revokers) {
+                revoked.addAll(revoker.get(30, TimeUnit.SECONDS));
+            }
+            revoking.set(false);
+            sweeper.get(30, TimeUnit.SECONDS);
+
+            assertTrue(revoked.stream().allMatch(index::isRevoked));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static RevocationIndex revocationIndex(long expectedTokens, long fallbackLifetime) {
+        return new RevocationIndex(mock(TokenRepository.class), mock(UserRepository.class), expectedTokens,
+                fallbackLifetime);
+    }
+
+    private static VerifiedToken token(int userId, Integer tokenGeneration) {
+        Map<String, Object> claims = tokenGeneration == null
+                ? Map.of(TokenClaims.USER_ID, userId)
+                : Map.of(TokenClaims.USER_ID, userId, TokenClaims.TOKEN_GENERATION, tokenGeneration);
+        return new VerifiedToken(UUID.randomUUID(), "user", new Date(), new Date(System.currentTimeMillis() + 60_000),
+                claims);
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.auth.cache;
+
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UsernameFilterTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    @Test
+    void onlyActiveUsernamesPass() {
+        when(userRepository.findAllUsernamesByStatus(UserStatus.ACTIVE)).thenReturn(List.of("active"));
+        UsernameFilter usernameFilter = usernameFilter(true, Duration.ofMinutes(1));
+
+        assertTrue(usernameFilter.mightBeActive("active"));
+        assertFalse(usernameFilter.mightBeActive("unknown"));
+        assertEquals(1, usernameFilter.rejectionCount());
+    }
+
+    @Test
+    void inactiveUsernamesAreRejectedUntilTheyExpire() throws InterruptedException {
+        when(userRepository.findAllUsernamesByStatus(UserStatus.ACTIVE)).thenReturn(List.of("deleted"));
+        UsernameFilter usernameFilter = usernameFilter(true, Duration.ofMillis(100));
+
+        usernameFilter.recordInactive("deleted");
+        assertFalse(usernameFilter.mightBeActive("deleted"));
+        Thread.sleep(150);
+        assertTrue(usernameFilter.mightBeActive("deleted"));
+    }
+
+    @Test
+    void changedUsersAreUpdatedImmediately() {
+        when(userRepository.findAllUsernamesByStatus(UserStatus.ACTIVE)).thenReturn(List.of("user"));
+        UsernameFilter usernameFilter = usernameFilter(true, Duration.ofMinutes(1));
+
+        usernameFilter.onUserChanged("signed-up", UserStatus.ACTIVE);
+        assertTrue(usernameFilter.mightBeActive("signed-up"));
+
+        usernameFilter.recordInactive("user");
+        usernameFilter.onUserChanged("user", UserStatus.ACTIVE);
+        assertTrue(usernameFilter.mightBeActive("user"));
+    }
+
+    /**
+     * A lookup that read the row before the change must not leave a negative entry once the
+     * change has committed.
+     */
+    @Test
+    void negativeEntryIsDroppedAgainAfterCommit() {
+        when(userRepository.findAllUsernamesByStatus(UserStatus.ACTIVE)).thenReturn(List.of("user"));
+        UsernameFilter usernameFilter = usernameFilter(true, Duration.ofMinutes(1));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            usernameFilter.onUserChanged("user", UserStatus.ACTIVE);
+            usernameFilter.recordInactive("user");
+            assertFalse(usernameFilter.mightBeActive("user"));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(usernameFilter.mightBeActive("user"));
+    }
+
+    @Test
+    void rebuildDropsUsersNoLongerActive() {
+        when(userRepository.findAllUsernamesByStatus(UserStatus.ACTIVE))
+                .thenReturn(List.of("user", "suspended"))
+                .thenReturn(List.of("user"));
+        UsernameFilter usernameFilter = usernameFilter(true, Duration.ofMinutes(1));
+        usernameFilter.recordInactive("user");
+
+        usernameFilter.reset();
+
+        assertTrue(usernameFilter.mightBeActive("user"));
+        assertFalse(usernameFilter.mightBeActive("suspended"));
+    }
+
+    /**
+     * Once a rebuild query started after an activation, the query is trusted, so a user
+     * suspended directly in the database drops out with the rebuild after that.
+     */
+    @Test
+    void activationIsForgottenOnceARebuildCoversIt() {
+        when(userRepository.findAllUsernamesByStatus(UserStatus.ACTIVE)).thenReturn(List.of());
+        UsernameFilter usernameFilter = usernameFilter(true, Duration.ofMinutes(1));
+        usernameFilter.onUserChanged("user", UserStatus.ACTIVE);
+
+        usernameFilter.rebuild();
+        assertTrue(usernameFilter.mightBeActive("user"));
+        usernameFilter.rebuild();
+        assertFalse(usernameFilter.mightBeActive("user"));
+    }
+
+    /**
+     * Rebuilds that run while the activating transaction is still open cannot see the user,
+     * so the activation has to reach the filter again once it commits.
+     */
+    @Test
+    void activationCommittedAfterRebuildsPasses() {
+        when(userRepository.findAllUsernamesByStatus(UserStatus.ACTIVE)).thenReturn(List.of());
+        UsernameFilter usernameFilter = usernameFilter(true, Duration.ofMinutes(1));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            usernameFilter.onUserChanged("user", UserStatus.ACTIVE);
+            usernameFilter.rebuild();
+            usernameFilter.rebuild();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(usernameFilter.mightBeActive("user"));
+    }
+
+    @Test
+    void disabledFilterPassesEverythingWithoutQuerying() {
+        UsernameFilter usernameFilter = usernameFilter(false, Duration.ofMinutes(1));
+
+        usernameFilter.recordInactive("user");
+        usernameFilter.onUserChanged("user", UserStatus.ACTIVE);
+        usernameFilter.reset();
+
+        assertTrue(usernameFilter.mightBeActive("user"));
+        assertTrue(usernameFilter.mightBeActive("unknown"));
+        verify(userRepository, never()).findAllUsernamesByStatus(UserStatus.ACTIVE);
+    }
+
+    /**
+     * A user activated while the rebuild query runs is not in its result, and must reach the
+     * filter that the rebuild installs.
+     */
+    @Test
+    void userActivatedDuringRebuildQueryPasses() throws Exception {
+        CountDownLatch querying = new CountDownLatch(1);
+        CountDownLatch activated = new CountDownLatch(1);
+        when(userRepository.findAllUsernamesByStatus(UserStatus.ACTIVE))
+                .thenReturn(List.of("user"))
+                .thenAnswer(invocation -> {
+                    querying.countDown();
+                    assertTrue(activated.await(10, TimeUnit.SECONDS));
+                    return List.of("user");
+                });
+        UsernameFilter usernameFilter = usernameFilter(true, Duration.ofMinutes(1));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> rebuild = executor.submit(usernameFilter::rebuild);
+            assertTrue(querying.await(10, TimeUnit.SECONDS));
+            usernameFilter.onUserChanged("signed-up", UserStatus.ACTIVE);
+            activated.countDown();
+            rebuild.get(10, TimeUnit.SECONDS);
+
+            assertTrue(usernameFilter.mightBeActive("signed-up"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Each activation is recorded before its transaction commits and again after, so any
+     * rebuild may run its query between the two and miss it.
+     */
+    @Test
+    void usersActivatedDuringRepeatedRebuildsPass() throws Exception {
+        Set<String> committed = ConcurrentHashMap.newKeySet();
+        when(userRepository.findAllUsernamesByStatus(UserStatus.ACTIVE))
+                .thenAnswer(invocation -> List.copyOf(committed));
+        UsernameFilter usernameFilter = usernameFilter(true, Duration.ofMinutes(1));
+        AtomicBoolean activating = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            Future<?> rebuilder = executor.submit(() -> {
+                while (activating.get()) {
+                    usernameFilter.rebuild();
+                }
+            });
+            List<Future<List<String>>> activators = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                activators.add(executor.submit(() -> {
+                    List<String> usernames = new ArrayList<>();
+                    for (int i = 0; i < 2000; i++) {
+                        String username = UUID.randomUUID().toString();
+                        TransactionSynchronizationManager.initSynchronization();
+                        try {
+                            usernameFilter.onUserChanged(username, UserStatus.ACTIVE);
+                            committed.add(username);
+                            TransactionSynchronizationManager.getSynchronizations()
+                                    .forEach(TransactionSynchronization::afterCommit);
+                        } finally {
+                            TransactionSynchronizationManager.clearSynchronization();
+                        }
+                        usernames.add(username);
+                    }
+                    return usernames;
+                }));
+            }
+            List<String> activated = new ArrayList<>();
+            for (Future<List<String>> activator : activators) {
+                activated.addAll(activator.get(30, TimeUnit.SECONDS));
+            }
+            activating.set(false);
+            rebuilder.get(30, TimeUnit.SECONDS);
+
+            assertTrue(activated.stream().allMatch(usernameFilter::mightBeActive));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private UsernameFilter usernameFilter(boolean enabled, Duration negativeCacheTimeToLive) {
+        UsernameFilter usernameFilter = new UsernameFilter(userRepository, enabled, 1000, 1000, negativeCacheTimeToLive,
+                Duration.ZERO);
+        usernameFilter.load();
+        return usernameFilter;
+    }
+}
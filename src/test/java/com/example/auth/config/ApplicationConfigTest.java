@@ -0,0 +1,119 @@
+package com.example.auth.config;
+
+import com.example.auth.metrics.AuthMetrics;
+import com.example.auth.models.entities.UserEntity;
+import com.example.auth.models.enums.UserRole;
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.models.principals.UserPrincipal;
+import com.example.auth.repositories.UserRepository;
+import com.example.auth.services.IPrincipalService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Builds the password beans with an explicit BCrypt strength of 5, below the minimum the
+ * calibration would return, so the strength in a hash shows which path produced it.
+ */
+class ApplicationConfigTest {
+
+    private static final String PASSWORD = "Password@1";
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final IPrincipalService principalService = mock(IPrincipalService.class);
+    private AnnotationConfigApplicationContext context;
+    private UserEntity user;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "authorization.password.hashing.threads", "1",
+                "authorization.password.hashing.queue-capacity", "4",
+                "authorization.password.hashing.retry-after", "1",
+                "authorization.password.encoding-id", "bcrypt",
+                "authorization.password.bcrypt.strength", "5",
+                "authorization.password.bcrypt.min-strength", "10",
+                "authorization.password.bcrypt.target-duration", "PT10S")));
+        context.registerBean(UserRepository.class, () -> userRepository);
+        context.registerBean(IPrincipalService.class, () -> principalService);
+        context.registerBean(AuthMetrics.class, () -> new AuthMetrics(new SimpleMeterRegistry()));
+        context.registerBean(AuthenticationConfiguration.class, () -> mock(AuthenticationConfiguration.class));
+        context.register(ApplicationConfig.class);
+        context.refresh();
+
+        user = new UserEntity();
+        user.setId(1);
+        user.setUsername("user");
+        user.setStatus(UserStatus.ACTIVE);
+        user.setRole(UserRole.ORDINARY);
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
+        when(userRepository.save(any(UserEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void explicitStrengthSkipsCalibration() {
+        String hash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+
+        assertTrue(hash.startsWith("{bcrypt}$2a$05$"), hash);
+    }
+
+    @Test
+    void lowerCostHashIsUpgradedOnSignIn() {
+        signIn("{bcrypt}" + new BCryptPasswordEncoder(4).encode(PASSWORD));
+
+        assertUpgraded();
+    }
+
+    @Test
+    void legacyUnprefixedHashIsUpgradedOnSignIn() {
+        signIn(new BCryptPasswordEncoder(5).encode(PASSWORD));
+
+        assertUpgraded();
+    }
+
+    @Test
+    void currentHashIsKept() {
+        signIn(context.getBean(PasswordEncoder.class).encode(PASSWORD));
+
+        verify(userRepository, never()).save(any());
+    }
+
+    private void signIn(String storedHash) {
+        user.setPassword(storedHash);
+        when(principalService.loadUserByUsername("user")).thenReturn(UserPrincipal.of(user));
+        context.getBean(AuthenticationProvider.class)
+                .authenticate(new UsernamePasswordAuthenticationToken("user", PASSWORD));
+    }
+
+    private void assertUpgraded() {
+        verify(userRepository).save(user);
+        assertTrue(user.getPassword().startsWith("{bcrypt}$2a$05$"), user.getPassword());
+        assertTrue(context.getBean(PasswordEncoder.class).matches(PASSWORD, user.getPassword()));
+    }
+}
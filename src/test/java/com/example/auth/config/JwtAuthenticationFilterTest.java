@@ -0,0 +1,78 @@
+package com.example.auth.config;
+
+import com.example.auth.cache.RevocationIndex;
+import com.example.auth.metrics.AuthMetrics;
+import com.example.auth.models.enums.UserRole;
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.models.principals.UserPrincipal;
+import com.example.auth.repositories.TokenRepository;
+import com.example.auth.repositories.UserRepository;
+import com.example.auth.services.impl.TestTokens;
+import com.example.auth.services.impl.TokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JwtAuthenticationFilterTest {
+
+    private final UserDetailsService userDetailsService = mock(UserDetailsService.class);
+    private final UserPrincipal principal = new UserPrincipal(1, "user", "", UserRole.ORDINARY, UserStatus.ACTIVE, 0, 0);
+    private TokenService tokenService;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        AuthMetrics metrics = new AuthMetrics(new SimpleMeterRegistry());
+        tokenService = TestTokens.tokenService(metrics);
+        RevocationIndex revocationIndex = new RevocationIndex(mock(TokenRepository.class), mock(UserRepository.class), 1000, 900_000);
+        filter = new JwtAuthenticationFilter(tokenService, userDetailsService, revocationIndex, metrics);
+        when(userDetailsService.loadUserByUsername("user")).thenReturn(principal);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void accessTokenAuthenticates() throws Exception {
+        filter(tokenService.issueAccessToken(principal).getValue());
+
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        assertEquals(principal, SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+    }
+
+    @Test
+    void refreshTokenIsRejectedAsBearer() throws Exception {
+        MockFilterChain chain = filter(tokenService.issueRefreshToken(principal, UUID.randomUUID()).getValue());
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertNotNull(chain.getRequest());
+        verify(userDetailsService, never()).loadUserByUsername(any());
+    }
+
+    private MockFilterChain filter(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return chain;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.auth.config;
+
+import com.example.auth.exceptions.TooManyRequestsException;
+import com.example.auth.metrics.AuthMetrics;
+import com.example.auth.services.IPrincipalService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.apache.catalina.filters.RemoteIpFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Requests pass through Tomcat's forwarded-header handling with the proxies Spring Boot
+ * trusts by default, as they do with {@code server.forward-headers-strategy=native}.
+ */
+class LoginThrottleTest {
+
+    private static final String LOAD_BALANCER = "10.0.0.5";
+
+    private LoginThrottle loginThrottle;
+    private RemoteIpFilter remoteIpFilter;
+
+    @BeforeEach
+    void setUp() {
+        loginThrottle = new LoginThrottle(new AuthMetrics(new SimpleMeterRegistry()), mock(IPrincipalService.class),
+                true, 2, Duration.ofMinutes(1), 100, Duration.ofMinutes(1), 1000);
+        remoteIpFilter = new RemoteIpFilter();
+        remoteIpFilter.setInternalProxies(new ServerProperties().getTomcat().getRemoteip().getInternalProxies());
+        remoteIpFilter.setRemoteIpHeader("X-Forwarded-For");
+    }
+
+    @Test
+    void clientsBehindLoadBalancerHaveSeparateBuckets() throws Exception {
+        signIn(LOAD_BALANCER, "203.0.113.1");
+        signIn(LOAD_BALANCER, "203.0.113.1");
+
+        assertThrows(TooManyRequestsException.class, () -> signIn(LOAD_BALANCER, "203.0.113.1"));
+        assertDoesNotThrow(() -> signIn(LOAD_BALANCER, "203.0.113.2"));
+    }
+
+    @Test
+    void forwardedAddressFromUntrustedClientIsIgnored() throws Exception {
+        signIn("198.51.100.7", "203.0.113.1");
+        signIn("198.51.100.7", "203.0.113.2");
+
+        assertThrows(TooManyRequestsException.class, () -> signIn("198.51.100.7", "203.0.113.3"));
+    }
+
+    private void signIn(String remoteAddress, String forwardedFor) throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/signin");
+        request.setRemoteAddr(remoteAddress);
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        remoteIpFilter.doFilter(request, new MockHttpServletResponse(),
+                (filtered, response) -> loginThrottle.acquire(filtered.getRemoteAddr(), "user"));
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.auth.config;
+
+import com.example.auth.advices.GlobalExceptionHandler;
+import com.example.auth.exceptions.RetryableHttpException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Fills a hashing executor of one thread and a queue of one with blocked verifications, so the
+ * next call is rejected.
+ */
+class OffloadingPasswordEncoderTest {
+
+    private static final long RETRY_AFTER_SECONDS = 5;
+
+    private final CountDownLatch hashing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+    private ThreadPoolTaskExecutor hashingExecutor;
+    private OffloadingPasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void setUp() {
+        PasswordEncoder delegate = mock(PasswordEncoder.class);
+        when(delegate.matches(any(), anyString())).thenAnswer(invocation -> {
+            hashing.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        });
+        hashingExecutor = new ThreadPoolTaskExecutor();
+        hashingExecutor.setCorePoolSize(1);
+        hashingExecutor.setMaxPoolSize(1);
+        hashingExecutor.setQueueCapacity(1);
+        hashingExecutor.initialize();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        passwordEncoder = new OffloadingPasswordEncoder(delegate, hashingExecutor, RETRY_AFTER_SECONDS,
+                registry.timer("encode"), registry.timer("match"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        hashingExecutor.shutdown();
+    }
+
+    @Test
+    void saturatedExecutorRejectsWithRetryAfter() throws Exception {
+        List<Future<Boolean>> waiting = saturate();
+
+        RetryableHttpException e = assertThrows(RetryableHttpException.class,
+                () -> passwordEncoder.matches("password", "hash"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+        assertEquals(RETRY_AFTER_SECONDS, e.getRetryAfterSeconds());
+
+        release.countDown();
+        for (Future<Boolean> caller : waiting) {
+            assertTrue(caller.get(10, TimeUnit.SECONDS));
+        }
+        assertTrue(passwordEncoder.matches("password", "hash"));
+    }
+
+    @Test
+    void rejectionIsServedAs503WithRetryAfter() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new SignInController(passwordEncoder))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        saturate();
+
+        mockMvc.perform(post("/signin"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS)));
+    }
+
+    /**
+     * Occupies the hashing thread and the queue slot, returning once the second verification
+     * is queued.
+     */
+    private List<Future<Boolean>> saturate() throws InterruptedException {
+        List<Future<Boolean>> waiting = new ArrayList<>();
+        waiting.add(callers.submit(() -> passwordEncoder.matches("password", "hash")));
+        assertTrue(hashing.await(10, TimeUnit.SECONDS));
+        waiting.add(callers.submit(() -> passwordEncoder.matches("password", "hash")));
+        while (hashingExecutor.getQueueSize() == 0) {
+            Thread.sleep(1);
+        }
+        return waiting;
+    }
+
+    @RestController
+    static class SignInController {
+
+        private final PasswordEncoder passwordEncoder;
+
+        SignInController(PasswordEncoder passwordEncoder) {
+            this.passwordEncoder = passwordEncoder;
+        }
+
+        @PostMapping("/signin")
+        boolean signIn() {
+            return passwordEncoder.matches("password", "hash");
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.auth.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PasswordEncoderCalibratorTest {
+
+    private static final long MILLISECOND = 1_000_000;
+
+    private final List<Integer> measured = new ArrayList<>();
+
+    /**
+     * A hash at strength 10 takes 1 ms here, and every step above doubles it.
+     */
+    private final IntToLongFunction doubling = strength -> {
+        measured.add(strength);
+        return MILLISECOND << (strength - 10);
+    };
+
+    @Test
+    void stopsBeforeTheNextDoublingExceedsTarget() {
+        assertEquals(13, PasswordEncoderCalibrator.calibrateBCryptStrength(Duration.ofMillis(12), 10, doubling));
+        assertEquals(List.of(10, 11, 12, 13), measured);
+    }
+
+    @Test
+    void targetReachedExactlyIsKept() {
+        assertEquals(12, PasswordEncoderCalibrator.calibrateBCryptStrength(Duration.ofMillis(4), 10, doubling));
+    }
+
+    @Test
+    void neverGoesBelowMinimumStrength() {
+        assertEquals(10, PasswordEncoderCalibrator.calibrateBCryptStrength(Duration.ofNanos(1), 10, doubling));
+        assertEquals(List.of(10), measured);
+    }
+
+    @Test
+    void neverExceedsBCryptMaximum() {
+        assertEquals(31, PasswordEncoderCalibrator.calibrateBCryptStrength(Duration.ofSeconds(1), 10, strength -> 1));
+    }
+
+    @Test
+    void calibratesAgainstRealHashes() {
+        assertEquals(4, PasswordEncoderCalibrator.calibrateBCryptStrength(Duration.ZERO, 4));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.auth.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private SwitchableDataSource replica;
+    private ReadWriteRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource primary = database("primary");
+        replica = new SwitchableDataSource(database("replica"));
+        routingDataSource = new ReadWriteRoutingDataSource(primary, List.of(replica), Duration.ofSeconds(1));
+        routingDataSource.afterPropertiesSet();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void readOnlyTransactionsUseReplica() {
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    void readWriteTransactionsUsePrimary() {
+        assertEquals("primary", readWrite.execute(status -> node()));
+    }
+
+    @Test
+    void readsAfterWriteInSameRequestStayOnPrimary() {
+        startRequest();
+        assertEquals("replica", readOnly.execute(status -> node()));
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("UPDATE node SET name = name"));
+        assertEquals("primary", readOnly.execute(status -> node()));
+
+        startRequest();
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    void readFromPrimaryBypassesReplica() {
+        assertEquals("primary", routingDataSource.readFromPrimary(() -> readOnly.execute(status -> node())));
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    void unavailableReplicaFallsBackToPrimaryUntilHealthy() {
+        replica.available = false;
+        assertEquals("primary", readOnly.execute(status -> node()));
+
+        replica.available = true;
+        assertEquals("primary", readOnly.execute(status -> node()));
+
+        routingDataSource.checkReplicas();
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    void failedHealthCheckTakesReplicaOutOfRotation() {
+        replica.available = false;
+        routingDataSource.checkReplicas();
+        replica.available = true;
+        assertEquals("primary", readOnly.execute(status -> node()));
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static void startRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    private static DriverManagerDataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(16))");
+        jdbcTemplate.update("DELETE FROM node");
+        jdbcTemplate.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+
+    private static final class SwitchableDataSource extends DelegatingDataSource {
+
+        private volatile boolean available = true;
+
+        private SwitchableDataSource(DriverManagerDataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (!available) {
+                throw new SQLException("Replica unavailable");
+            }
+            return super.getConnection();
+        }
+    }
+}
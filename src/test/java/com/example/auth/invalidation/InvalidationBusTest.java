@@ -0,0 +1,228 @@
+package com.example.auth.invalidation;
+
+import com.example.auth.cache.PrincipalCache;
+import com.example.auth.cache.RevocationIndex;
+import com.example.auth.cache.UsernameFilter;
+import com.example.auth.models.enums.UserRole;
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.models.principals.UserPrincipal;
+import com.example.auth.models.tokens.TokenClaims;
+import com.example.auth.models.tokens.VerifiedToken;
+import com.example.auth.repositories.TokenRepository;
+import com.example.auth.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Two buses on one in-process transport stand in for a two-node cluster.
+ */
+class InvalidationBusTest {
+
+    private static final int RETRY_ATTEMPTS = 3;
+
+    private InProcessInvalidationTransport transport;
+    private Node a;
+    private Node b;
+    private List<InvalidationEvent> sent;
+    private final AtomicInteger failingSends = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        transport = new InProcessInvalidationTransport();
+        sent = new CopyOnWriteArrayList<>();
+        transport.start(new InvalidationTransport.Receiver() {
+            @Override
+            public void receive(InvalidationBatch batch) {
+                sent.addAll(batch.getEvents());
+            }
+
+            @Override
+            public void resync() {
+            }
+        });
+        a = new Node("a", new InvalidationTransport() {
+            @Override
+            public void send(InvalidationBatch batch) {
+                if (failingSends.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+                    throw new IllegalStateException("Transport unavailable");
+                }
+                transport.send(batch);
+            }
+
+            @Override
+            public void start(Receiver receiver) {
+                transport.start(receiver);
+            }
+
+            @Override
+            public void stop() {
+                transport.stop();
+            }
+        });
+        b = new Node("b", transport);
+    }
+
+    @AfterEach
+    void tearDown() {
+        a.bus.stop();
+        b.bus.stop();
+    }
+
+    @Test
+    void revokedTokensReachOtherNode() {
+        UUID tokenId = UUID.randomUUID();
+
+        a.bus.publish(InvalidationEvent.tokenRevoked(tokenId, Instant.now().plusSeconds(60)));
+
+        await(() -> b.revocationIndex.isRevoked(tokenId));
+        assertFalse(a.revocationIndex.isRevoked(tokenId));
+    }
+
+    @Test
+    void changedUsersReachOtherNode() {
+        a.cachePrincipal("alice");
+        b.cachePrincipal("alice");
+        b.usernameFilter.recordInactive("alice");
+        assertFalse(b.usernameFilter.mightBeActive("alice"));
+
+        a.bus.publish(InvalidationEvent.userChanged("alice", UserStatus.ACTIVE));
+
+        await(() -> b.usernameFilter.mightBeActive("alice"));
+        assertTrue(b.principalCache.isRecentlyInvalidated("alice"));
+        b.cachePrincipal("alice");
+        assertEquals(2, b.loads.get());
+        a.cachePrincipal("alice");
+        assertEquals(1, a.loads.get());
+    }
+
+    @Test
+    void tokenGenerationBumpsReachOtherNode() {
+        VerifiedToken token = token(7, 2);
+
+        a.bus.publish(InvalidationEvent.userTokensBumped(7, 3));
+
+        await(() -> b.revocationIndex.isRevoked(token));
+        assertFalse(a.revocationIndex.isRevoked(token));
+    }
+
+    @Test
+    void eventsForSameKeyAreCoalesced() {
+        UUID tokenId = UUID.randomUUID();
+        Instant expiresAt = Instant.now().plusSeconds(120);
+
+        a.bus.publish(InvalidationEvent.userChanged("bob", UserStatus.BLOCKED));
+        a.bus.publish(InvalidationEvent.tokenRevoked(tokenId, expiresAt));
+        a.bus.publish(InvalidationEvent.userChanged("bob", UserStatus.ACTIVE));
+        a.bus.publish(InvalidationEvent.tokenRevoked(tokenId, expiresAt.minusSeconds(60)));
+
+        await(() -> sent.size() >= 2 && b.revocationIndex.isRevoked(tokenId));
+        assertEquals(2, sent.size());
+        assertTrue(sent.contains(InvalidationEvent.userChanged("bob", UserStatus.ACTIVE)));
+        assertTrue(sent.contains(InvalidationEvent.tokenRevoked(tokenId, expiresAt)));
+    }
+
+    @Test
+    void failedBatchIsRetriedWithNewerEvents() {
+        UUID tokenId = UUID.randomUUID();
+        failingSends.set(2);
+
+        a.bus.publish(InvalidationEvent.userChanged("dave", UserStatus.BLOCKED));
+        await(() -> failingSends.get() < 2);
+        a.bus.publish(InvalidationEvent.userChanged("dave", UserStatus.ACTIVE));
+        a.bus.publish(InvalidationEvent.tokenRevoked(tokenId, Instant.now().plusSeconds(60)));
+
+        await(() -> b.revocationIndex.isRevoked(tokenId));
+        assertEquals(List.of(InvalidationEvent.userChanged("dave", UserStatus.ACTIVE)),
+                sent.stream().filter(event -> event.getType() == InvalidationEvent.Type.USER_CHANGED).toList());
+        assertFalse(sent.contains(InvalidationEvent.resync()));
+    }
+
+    @Test
+    void exhaustedRetriesRequestResync() {
+        UUID tokenId = UUID.randomUUID();
+        b.cachePrincipal("erin");
+        failingSends.set(RETRY_ATTEMPTS);
+
+        a.bus.publish(InvalidationEvent.tokenRevoked(tokenId, Instant.now().plusSeconds(60)));
+
+        await(() -> b.revocationIndex.isRevoked(tokenId));
+        assertTrue(sent.contains(InvalidationEvent.resync()));
+        verify(b.userRepository, times(2)).findAllUsernamesByStatus(UserStatus.ACTIVE);
+        b.cachePrincipal("erin");
+        assertEquals(2, b.loads.get());
+    }
+
+    @Test
+    void resyncRebuildsUsernameFilter() {
+        b.usernameFilter.recordInactive("carol");
+        when(b.userRepository.findAllUsernamesByStatus(UserStatus.ACTIVE)).thenReturn(List.of("carol"));
+
+        b.bus.resync();
+
+        assertTrue(b.usernameFilter.mightBeActive("carol"));
+    }
+
+    private static VerifiedToken token(int userId, int tokenGeneration) {
+        Date now = new Date();
+        return new VerifiedToken(UUID.randomUUID(), "user", now, new Date(now.getTime() + 60_000),
+                Map.of(TokenClaims.USER_ID, userId, TokenClaims.TOKEN_GENERATION, tokenGeneration));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the event");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private class Node {
+
+        final UserRepository userRepository = mock(UserRepository.class);
+        final RevocationIndex revocationIndex;
+        final PrincipalCache principalCache;
+        final UsernameFilter usernameFilter;
+        final InvalidationBus bus;
+        final AtomicInteger loads = new AtomicInteger();
+
+        Node(String nodeId, InvalidationTransport transport) {
+            revocationIndex = new RevocationIndex(mock(TokenRepository.class), userRepository, 1000, 60_000);
+            principalCache = new PrincipalCache(1000, Duration.ofMinutes(5), Duration.ofSeconds(10));
+            usernameFilter = new UsernameFilter(userRepository, true, 1000, 1000, Duration.ofMinutes(1), Duration.ZERO);
+            usernameFilter.reset();
+            bus = new InvalidationBus(transport, revocationIndex, principalCache, usernameFilter, nodeId,
+                    Duration.ofMillis(200), RETRY_ATTEMPTS, Duration.ofMillis(10));
+            bus.start();
+        }
+
+        void cachePrincipal(String username) {
+            principalCache.get(username, key -> {
+                loads.incrementAndGet();
+                return new UserPrincipal(1, key, "", UserRole.ORDINARY, UserStatus.ACTIVE, 0, 0);
+            });
+        }
+    }
+}
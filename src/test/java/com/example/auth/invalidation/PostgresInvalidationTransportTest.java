@@ -0,0 +1,108 @@
+package com.example.auth.invalidation;
+
+import com.example.auth.cache.PrincipalCache;
+import com.example.auth.cache.RevocationIndex;
+import com.example.auth.cache.UsernameFilter;
+import com.example.auth.repositories.TokenRepository;
+import com.example.auth.repositories.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PostgresInvalidationTransportTest {
+
+    private static final int RETRY_ATTEMPTS = 3;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DataSource dataSource = mock(DataSource.class);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private final AtomicInteger failingNotifies = new AtomicInteger();
+    private final List<String> notified = new CopyOnWriteArrayList<>();
+    private PostgresInvalidationTransport transport;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        AtomicReference<String> payload = new AtomicReference<>();
+        doAnswer(invocation -> {
+            payload.set(invocation.getArgument(1));
+            return null;
+        }).when(statement).setString(eq(2), anyString());
+        when(statement.execute()).thenAnswer(invocation -> {
+            if (failingNotifies.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+                throw new SQLException("Connection reset");
+            }
+            notified.add(payload.get());
+            return true;
+        });
+        DataSourceProperties dataSourceProperties = mock(DataSourceProperties.class);
+        when(dataSourceProperties.determineUrl()).thenReturn("jdbc:unavailable:");
+        transport = new PostgresInvalidationTransport(dataSource, dataSourceProperties, objectMapper, "auth_invalidation");
+    }
+
+    @Test
+    void failedNotifyIsThrown() {
+        failingNotifies.set(1);
+
+        assertThrows(IllegalStateException.class, () -> transport.send(new InvalidationBatch("a",
+                List.of(InvalidationEvent.tokenRevoked(UUID.randomUUID(), Instant.now().plusSeconds(60))))));
+    }
+
+    @Test
+    void unavailableConnectionIsThrown() throws SQLException {
+        when(dataSource.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        assertThrows(IllegalStateException.class, () -> transport.send(new InvalidationBatch("a",
+                List.of(InvalidationEvent.resync()))));
+    }
+
+    @Test
+    void failedNotifiesAreRetriedByBusWithResync() throws Exception {
+        UserRepository userRepository = mock(UserRepository.class);
+        InvalidationBus bus = new InvalidationBus(transport,
+                new RevocationIndex(mock(TokenRepository.class), userRepository, 1000, 60_000),
+                new PrincipalCache(1000, Duration.ofMinutes(5), Duration.ofSeconds(10)),
+                new UsernameFilter(userRepository, false, 1000, 1000, Duration.ofMinutes(1), Duration.ZERO),
+                "a", Duration.ofMillis(10), RETRY_ATTEMPTS, Duration.ofMillis(10));
+        InvalidationEvent revoked = InvalidationEvent.tokenRevoked(UUID.randomUUID(), Instant.now().plusSeconds(60));
+        failingNotifies.set(RETRY_ATTEMPTS);
+        bus.start();
+        try {
+            bus.publish(revoked);
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (notified.isEmpty()) {
+                assertTrue(System.nanoTime() < deadline, "Timed out waiting for the notification");
+                Thread.sleep(10);
+            }
+        } finally {
+            bus.stop();
+        }
+        List<InvalidationEvent> events = objectMapper.readValue(notified.get(0), InvalidationBatch.class).getEvents();
+        assertTrue(events.contains(revoked));
+        assertTrue(events.contains(InvalidationEvent.resync()));
+    }
+}
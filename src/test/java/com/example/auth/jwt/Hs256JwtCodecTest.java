@@ -0,0 +1,148 @@
+package com.example.auth.jwt;
+
+import com.example.auth.models.tokens.TokenClaims;
+import com.example.auth.services.impl.SigningKeyService;
+import com.example.auth.services.impl.TestTokens;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Checks the HS256 codec against jjwt: both must write the same tokens for the same input,
+ * read every token to the same result and reject every invalid token with the same exception.
+ */
+class Hs256JwtCodecTest {
+
+    private static final String OTHER_SECRET = "b3RoZXJvdGhlcm90aGVyb3RoZXJvdGhlcm90aGVyb3RoZXJvdGhlcm90aGVy";
+
+    private final JjwtCodec jjwt = new JjwtCodec(TestTokens.signingKeyService());
+    private final Hs256JwtCodec hs256 = new Hs256JwtCodec(TestTokens.signingKeyService());
+
+    @Test
+    void issuedClaimSetsMatchJjwt() {
+        Map<String, Object> stateless = new HashMap<>();
+        stateless.put(TokenClaims.USER_ID, 42);
+        stateless.put(TokenClaims.ROLE, "ADMIN");
+        stateless.put(TokenClaims.STATUS, "ACTIVE");
+        stateless.put(TokenClaims.CREDENTIAL_VERSION, 3);
+        stateless.put(TokenClaims.TOKEN_GENERATION, 7);
+        Map<String, Object> refresh = new HashMap<>(stateless);
+        refresh.put(TokenClaims.TOKEN_FAMILY, UUID.randomUUID().toString());
+
+        for (Map<String, Object> claims : List.of(new HashMap<String, Object>(), stateless, refresh)) {
+            assertSameEncodingAndDecoding(claims, "user.name@example.com");
+        }
+    }
+
+    @Test
+    void randomClaimsMatchJjwt() {
+        SplittableRandom random = new SplittableRandom(20241018);
+        for (int i = 0; i < 2000; i++) {
+            Map<String, Object> claims = new HashMap<>();
+            int count = random.nextInt(6);
+            for (int j = 0; j < count; j++) {
+                claims.put(randomString(random), switch (random.nextInt(3)) {
+                    case 0 -> random.nextInt();
+                    case 1 -> random.nextLong();
+                    default -> randomString(random);
+                });
+            }
+            assertSameEncodingAndDecoding(claims, randomString(random));
+        }
+    }
+
+    @Test
+    void tokensWithOtherHeadersAreReadLikeJjwt() {
+        String token = Jwts.builder()
+                .setHeaderParam("typ", "JWT")
+                .setSubject("user")
+                .setId(UUID.randomUUID().toString())
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(TestTokens.SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+        assertEquals(jjwt.decode(token), hs256.decode(token));
+    }
+
+    @Test
+    void invalidTokensAreRejectedLikeJjwt() {
+        String valid = hs256.encode(new HashMap<>(), UUID.randomUUID(), "user", new Date(), new Date(System.currentTimeMillis() + 60_000));
+        int signature = valid.lastIndexOf('.') + 1;
+        List<String> tokens = new ArrayList<>();
+        tokens.add(valid.substring(0, signature) + (valid.charAt(signature) == 'A' ? 'B' : 'A') + valid.substring(signature + 1));
+        tokens.add(valid.substring(0, signature - 3) + (valid.charAt(signature - 3) == 'A' ? 'B' : 'A') + valid.substring(signature - 2));
+        tokens.add(valid.substring(0, signature - 1));
+        tokens.add(valid + ".");
+        tokens.add(valid.substring(valid.indexOf('.') + 1));
+        tokens.add(hs256.encode(new HashMap<>(), UUID.randomUUID(), "user", new Date(0), new Date(1000)));
+        tokens.add(new Hs256JwtCodec(new SigningKeyService(OTHER_SECRET, "", "", "PKCS12", ""))
+                .encode(new HashMap<>(), UUID.randomUUID(), "user", new Date(), new Date(System.currentTimeMillis() + 60_000)));
+        tokens.add(Jwts.builder().setSubject("user").compact());
+        tokens.add(hs256.encode(Map.of("nbf", 4102444800L), UUID.randomUUID(), "user", new Date(), new Date(System.currentTimeMillis() + 60_000)));
+        tokens.add(Jwts.builder()
+                .setId("not-a-uuid")
+                .setSubject("user")
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(TestTokens.SECRET)), SignatureAlgorithm.HS256)
+                .compact());
+        tokens.add("");
+        tokens.add("not.a.token");
+
+        for (String token : tokens) {
+            Class<?> expected = failure(() -> jjwt.decode(token));
+            assertNotNull(expected, token);
+            assertEquals(expected, failure(() -> hs256.decode(token)), token);
+        }
+    }
+
+    private void assertSameEncodingAndDecoding(Map<String, Object> claims, String subject) {
+        UUID id = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+        Date issuedAt = new Date(now);
+        Date expiration = new Date(now + 900_000);
+
+        String expected = jjwt.encode(claims, id, subject, issuedAt, expiration);
+        String actual = hs256.encode(claims, id, subject, issuedAt, expiration);
+
+        assertEquals(expected, actual);
+        assertEquals(jjwt.decode(expected), hs256.decode(expected));
+        assertEquals(jjwt.decode(actual), hs256.decode(actual));
+    }
+
+    /**
+     * Mostly printable ASCII, sometimes characters the fast path leaves to jjwt.
+     */
+    private static String randomString(SplittableRandom random) {
+        char[] chars = new char[1 + random.nextInt(24)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = switch (random.nextInt(40)) {
+                case 0 -> '"';
+                case 1 -> '\\';
+                case 2 -> (char) random.nextInt(0x20);
+                case 3 -> (char) (0x80 + random.nextInt(0x700));
+                default -> (char) (0x20 + random.nextInt(0x5f));
+            };
+        }
+        return new String(chars);
+    }
+
+    private static Class<?> failure(Runnable runnable) {
+        try {
+            runnable.run();
+            return null;
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.auth.services.impl;
+
+import com.example.auth.cache.RevocationIndex;
+import com.example.auth.exceptions.UnauthorizedException;
+import com.example.auth.invalidation.InvalidationBus;
+import com.example.auth.metrics.AuthMetrics;
+import com.example.auth.metrics.StartupTimer;
+import com.example.auth.models.entities.TokenEntity;
+import com.example.auth.models.entities.UserEntity;
+import com.example.auth.models.enums.TokenType;
+import com.example.auth.models.enums.UserRole;
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.models.principals.UserPrincipal;
+import com.example.auth.models.requests.SignInRequest;
+import com.example.auth.models.responses.AuthenticationResponse;
+import com.example.auth.models.tokens.IssuedToken;
+import com.example.auth.models.tokens.TokenClaims;
+import com.example.auth.models.tokens.VerifiedToken;
+import com.example.auth.repositories.TokenRepository;
+import com.example.auth.repositories.UserRepository;
+import com.example.auth.services.ITokenPersistenceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final TokenRepository tokenRepository = mock(TokenRepository.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final ITokenPersistenceService tokenPersistenceService = mock(ITokenPersistenceService.class);
+    private final RevocationIndex revocationIndex = new RevocationIndex(tokenRepository, mock(UserRepository.class), 1000, 900_000);
+    private AuthMetrics metrics;
+    private TokenService tokenService;
+    private AuthService authService;
+    private UserEntity user;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new AuthMetrics(new SimpleMeterRegistry());
+        tokenService = TestTokens.tokenService(metrics);
+        authService = new AuthService(userRepository, mock(PasswordEncoder.class), tokenService,
+                mock(AuthenticationManager.class), tokenRepository, revocationIndex, tokenPersistenceService, metrics,
+                mock(InvalidationBus.class), transactionTemplate, mock(StartupTimer.class));
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        user = new UserEntity();
+        user.setId(1);
+        user.setUsername("user");
+        user.setStatus(UserStatus.ACTIVE);
+        user.setRole(UserRole.ORDINARY);
+    }
+
+    @Test
+    void refreshIssuesNewPairInSameFamily() {
+        UUID familyId = UUID.randomUUID();
+        String refreshToken = storedRefreshToken(familyId, 10);
+        when(tokenRepository.revokeIfValid(10)).thenReturn(1);
+
+        AuthenticationResponse response = authService.refreshToken("Bearer " + refreshToken);
+
+        VerifiedToken rotated = tokenService.verifyToken(response.getRefreshToken());
+        assertEquals(familyId.toString(), rotated.getClaim(TokenClaims.TOKEN_FAMILY, String.class));
+        assertFalse(rotated.getId().equals(tokenService.verifyToken(refreshToken).getId()));
+        assertEquals(familyId, savedRefreshToken().getFamilyId());
+        assertEquals(rotated.getId(), savedRefreshToken().getTokenId());
+        assertEquals(familyId, savedAccessToken().getFamilyId());
+        assertEquals(tokenService.verifyToken(response.getAccessToken()).getId(), savedAccessToken().getTokenId());
+        verify(tokenRepository, never()).revokeAllValidTokenByFamily(any());
+    }
+
+    @Test
+    void reusedRefreshTokenRevokesFamily() {
+        UUID familyId = UUID.randomUUID();
+        String refreshToken = storedRefreshToken(familyId, 10);
+        when(tokenRepository.revokeIfValid(10)).thenReturn(1, 0);
+        AuthenticationResponse rotated = authService.refreshToken("Bearer " + refreshToken);
+        TokenEntity access = savedAccessToken();
+        TokenEntity refresh = savedRefreshToken();
+        when(tokenRepository.findAllValidTokenByFamily(familyId))
+                .thenReturn(List.of(expiry(access), expiry(refresh)));
+
+        assertThrows(UnauthorizedException.class, () -> authService.refreshToken("Bearer " + refreshToken));
+
+        ArgumentCaptor<Predicate<TokenEntity>> pending = ArgumentCaptor.forClass(Predicate.class);
+        verify(tokenPersistenceService, times(2)).revokePending(eq(1), pending.capture(), any());
+        assertTrue(pending.getValue().test(TokenEntity.builder().familyId(familyId).build()));
+        assertFalse(pending.getValue().test(TokenEntity.builder().familyId(UUID.randomUUID()).build()));
+        verify(tokenRepository).revokeAllValidTokenByFamily(familyId);
+        assertTrue(revocationIndex.isRevoked(tokenService.verifyToken(rotated.getAccessToken())));
+        assertTrue(revocationIndex.isRevoked(tokenService.verifyToken(rotated.getRefreshToken())));
+        assertEquals(1, metrics.getRefreshReuse().count());
+    }
+
+    @Test
+    void refreshTokenOfRevokedFamilyIsNotCountedAsReuse() {
+        UUID familyId = UUID.randomUUID();
+        String refreshToken = storedRefreshToken(familyId, 10);
+        when(tokenRepository.revokeIfValid(10)).thenReturn(0);
+        when(tokenRepository.findAllValidTokenByFamily(familyId)).thenReturn(List.of());
+
+        assertThrows(UnauthorizedException.class, () -> authService.refreshToken("Bearer " + refreshToken));
+
+        assertEquals(0, metrics.getRefreshReuse().count());
+        verify(tokenRepository, never()).revokeAllValidTokenByFamily(any());
+    }
+
+    @Test
+    void signInRevokesOtherSessions() {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
+
+        authService.signIn(signInRequest());
+
+        verify(tokenRepository).findAllValidTokenByUser(1);
+    }
+
+    @Test
+    void serviceSignInKeepsOtherSessions() {
+        user.setRole(UserRole.SERVICE);
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
+
+        authService.signIn(signInRequest());
+
+        verify(tokenRepository, never()).findAllValidTokenByUser(anyInt());
+        verify(tokenPersistenceService, never()).revokePending(anyInt(), any(), any());
+        assertEquals(TokenType.REFRESH, savedRefreshToken().getType());
+    }
+
+    @Test
+    void serviceRefreshRotatesOnlyItsFamily() {
+        user.setRole(UserRole.SERVICE);
+        UUID familyId = UUID.randomUUID();
+        String refreshToken = storedRefreshToken(familyId, 10);
+        when(tokenRepository.revokeIfValid(10)).thenReturn(1);
+
+        authService.refreshToken("Bearer " + refreshToken);
+
+        verify(tokenRepository).findAllValidTokenByFamily(familyId);
+        verify(tokenRepository, never()).findAllValidTokenByUser(anyInt());
+    }
+
+    @Test
+    void accessTokenIsNotAcceptedForRefresh() {
+        IssuedToken accessToken = tokenService.issueAccessToken(UserPrincipal.of(user));
+
+        assertThrows(UnauthorizedException.class, () -> authService.refreshToken("Bearer " + accessToken.getValue()));
+
+        verify(tokenRepository, never()).revokeIfValid(anyInt());
+    }
+
+    private static SignInRequest signInRequest() {
+        SignInRequest request = new SignInRequest();
+        request.setUsername("user");
+        request.setPassword("password");
+        return request;
+    }
+
+    private String storedRefreshToken(UUID familyId, int rowId) {
+        IssuedToken token = tokenService.issueRefreshToken(UserPrincipal.of(user), familyId);
+        TokenEntity row = TokenEntity.builder()
+                .id(rowId)
+                .tokenId(token.getId())
+                .type(TokenType.REFRESH)
+                .familyId(familyId)
+                .expiresAt(token.getExpiration().toInstant())
+                .user(user)
+                .build();
+        when(tokenRepository.findWithUserByTokenId(token.getId())).thenReturn(Optional.of(row));
+        return token.getValue();
+    }
+
+    private TokenEntity savedRefreshToken() {
+        ArgumentCaptor<TokenEntity> saved = ArgumentCaptor.forClass(TokenEntity.class);
+        verify(tokenRepository).save(saved.capture());
+        assertEquals(TokenType.REFRESH, saved.getValue().getType());
+        return saved.getValue();
+    }
+
+    private TokenEntity savedAccessToken() {
+        ArgumentCaptor<TokenEntity> saved = ArgumentCaptor.forClass(TokenEntity.class);
+        verify(tokenPersistenceService).save(saved.capture());
+        assertEquals(TokenType.BEARER, saved.getValue().getType());
+        return saved.getValue();
+    }
+
+    private static TokenRepository.TokenExpiry expiry(TokenEntity token) {
+        return new TokenRepository.TokenExpiry() {
+            @Override
+            public UUID getTokenId() {
+                return token.getTokenId();
+            }
+
+            @Override
+            public Instant getExpiresAt() {
+                return token.getExpiresAt();
+            }
+        };
+    }
+}
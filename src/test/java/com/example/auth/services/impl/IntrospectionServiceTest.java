@@ -0,0 +1,73 @@
+package com.example.auth.services.impl;
+
+import com.example.auth.cache.PrincipalCache;
+import com.example.auth.cache.RevocationIndex;
+import com.example.auth.cache.UsernameFilter;
+import com.example.auth.datasource.ReadWriteRoutingDataSource;
+import com.example.auth.metrics.AuthMetrics;
+import com.example.auth.models.enums.UserRole;
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.models.principals.UserPrincipal;
+import com.example.auth.models.requests.IntrospectionRequest;
+import com.example.auth.models.responses.TokenIntrospection;
+import com.example.auth.repositories.TokenRepository;
+import com.example.auth.repositories.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IntrospectionServiceTest {
+
+    private final TokenRepository tokenRepository = mock(TokenRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserPrincipal alice = new UserPrincipal(1, "alice", "", UserRole.ORDINARY, UserStatus.ACTIVE, 0, 0);
+    private final UserPrincipal bob = new UserPrincipal(2, "bob", "", UserRole.ORDINARY, UserStatus.ACTIVE, 0, 0);
+    private TokenService tokenService;
+    private IntrospectionService introspectionService;
+
+    @BeforeEach
+    void setUp() {
+        tokenService = TestTokens.tokenService(new AuthMetrics(new SimpleMeterRegistry()));
+        PrincipalService principalService = new PrincipalService(userRepository,
+                new PrincipalCache(1000, Duration.ofMinutes(5), Duration.ofSeconds(10)),
+                new UsernameFilter(userRepository, false, 1000, 1000, Duration.ofMinutes(1), Duration.ZERO),
+                mock(ReadWriteRoutingDataSource.class));
+        introspectionService = new IntrospectionService(tokenService,
+                new RevocationIndex(tokenRepository, userRepository, 1000, 900_000), tokenRepository, principalService,
+                1000, Duration.ofMinutes(1));
+        when(userRepository.findAllPrincipalsByUsernameInAndStatus(any(), any())).thenReturn(List.of(alice, bob));
+    }
+
+    @Test
+    void usersOfBatchAreLoadedWithOneQuery() {
+        IntrospectionRequest request = new IntrospectionRequest();
+        request.setTokens(List.of(
+                tokenService.issueAccessToken(alice).getValue(),
+                tokenService.issueAccessToken(bob).getValue(),
+                tokenService.issueAccessToken(alice).getValue(),
+                tokenService.issueAccessToken(new UserPrincipal(3, "carol", "", UserRole.ORDINARY, UserStatus.ACTIVE, 0, 0)).getValue()));
+
+        List<TokenIntrospection> first = introspectionService.introspect(request).getTokens();
+        List<TokenIntrospection> second = introspectionService.introspect(request).getTokens();
+
+        assertEquals(List.of(true, true, true, false), first.stream().map(TokenIntrospection::isActive).toList());
+        assertEquals(first, second);
+        verify(userRepository).findAllPrincipalsByUsernameInAndStatus(Set.of("alice", "bob", "carol"), UserStatus.ACTIVE);
+        verify(userRepository, times(1)).findAllPrincipalsByUsernameInAndStatus(any(), any());
+        verify(userRepository, never()).findPrincipalByUsernameAndStatus(anyString(), any());
+        verify(tokenRepository, times(1)).findAllRevokedTokenIdsIn(any());
+    }
+}
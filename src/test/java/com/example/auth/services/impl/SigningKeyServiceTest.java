@@ -0,0 +1,229 @@
+package com.example.auth.services.impl;
+
+import com.example.auth.controllers.JwksController;
+import com.example.auth.jwt.JjwtCodec;
+import com.example.auth.models.tokens.VerifiedToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.KeyException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.security.AlgorithmParameters;
+import java.security.KeyFactory;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Signs and verifies tokens with a PKCS12 key store holding an RSA and a P-256 entry, and
+ * checks the published JWKS against the keys it describes.
+ */
+class SigningKeyServiceTest {
+
+    private static final String PASSWORD = "changeit";
+
+    @TempDir
+    static Path keyStoreDirectory;
+
+    private static String keyStore;
+
+    @BeforeAll
+    static void createKeyStore() throws Exception {
+        keyStore = keyStoreDirectory.resolve("signing.p12").toString();
+        keytool("-alias", "rsa", "-keyalg", "RSA", "-keysize", "2048");
+        keytool("-alias", "ec", "-keyalg", "EC", "-groupname", "secp256r1");
+    }
+
+    @Test
+    void eachEntrySignsTokensVerifiedThroughItsKeyId() throws Exception {
+        SigningKeyService rsa = signingKeyService("", "rsa");
+        SigningKeyService ec = signingKeyService("", "ec");
+        assertEquals(SignatureAlgorithm.RS256, rsa.getSignatureAlgorithm());
+        assertEquals(SignatureAlgorithm.ES256, ec.getSignatureAlgorithm());
+
+        String rsaToken = encode(rsa);
+        String ecToken = encode(ec);
+
+        assertEquals("rsa", keyId(rsaToken));
+        assertEquals("ec", keyId(ecToken));
+        for (SigningKeyService verifier : new SigningKeyService[]{rsa, ec}) {
+            assertEquals("user", decode(verifier, rsaToken).getSubject());
+            assertEquals("user", decode(verifier, ecToken).getSubject());
+        }
+    }
+
+    @Test
+    void tokensVerifyWithKeysParsedFromJwks() throws Exception {
+        SigningKeyService rsa = signingKeyService("", "rsa");
+        SigningKeyService ec = signingKeyService("", "ec");
+        JsonNode keys = new ObjectMapper().readTree(jwks(rsa).getResponse().getContentAsString()).get("keys");
+        assertEquals(2, keys.size());
+
+        Map<String, PublicKey> publicKeys = new HashMap<>();
+        for (JsonNode jwk : keys) {
+            assertEquals("sig", jwk.get("use").asText());
+            publicKeys.put(jwk.get("kid").asText(), publicKey(jwk));
+        }
+        JsonNode ecJwk = keys.get(1);
+        assertEquals("ES256", ecJwk.get("alg").asText());
+        assertEquals("P-256", ecJwk.get("crv").asText());
+        assertEquals(32, Base64.getUrlDecoder().decode(ecJwk.get("x").asText()).length);
+        assertEquals(32, Base64.getUrlDecoder().decode(ecJwk.get("y").asText()).length);
+        assertEquals("RS256", keys.get(0).get("alg").asText());
+
+        assertEquals("user", parse(publicKeys.get("rsa"), encode(rsa)).getSubject());
+        assertEquals("user", parse(publicKeys.get("ec"), encode(ec)).getSubject());
+        assertEquals(rsa.getVerificationKey("rsa"), publicKeys.get("rsa"));
+        assertEquals(rsa.getVerificationKey("ec"), publicKeys.get("ec"));
+    }
+
+    @Test
+    void unchangedJwksIsNotModified() throws Exception {
+        SigningKeyService rsa = signingKeyService("", "rsa");
+        String etag = jwks(rsa).getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals(rsa.getJwksETag(), etag);
+
+        MockMvc mockMvc = jwksMockMvc(rsa);
+        mockMvc.perform(get("/.well-known/jwks.json").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/.well-known/jwks.json").header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * Tokens issued with the shared secret before the switch to a key store carry no kid and
+     * stay valid while the secret is still configured.
+     */
+    @Test
+    void tokensWithoutKeyIdFallBackToSharedSecret() throws Exception {
+        String secretToken = encode(TestTokens.signingKeyService());
+        assertNull(keyId(secretToken));
+
+        assertEquals("user", decode(signingKeyService(TestTokens.SECRET, "rsa"), secretToken).getSubject());
+        assertThrows(KeyException.class, () -> decode(signingKeyService("", "rsa"), secretToken));
+    }
+
+    @Test
+    void base64UrlStripsSignByte() {
+        BigInteger value = new BigInteger(1, new byte[]{(byte) 0x80, 0x01});
+        assertEquals(3, value.toByteArray().length);
+
+        assertEquals("gAE", SigningKeyService.base64Url(value, 0));
+        assertEquals("AQAB", SigningKeyService.base64Url(BigInteger.valueOf(65537), 0));
+    }
+
+    @Test
+    void base64UrlPadsCoordinatesToFieldLength() {
+        byte[] expected = new byte[32];
+        expected[31] = 1;
+
+        assertEquals(Base64.getUrlEncoder().withoutPadding().encodeToString(expected),
+                SigningKeyService.base64Url(BigInteger.ONE, 32));
+    }
+
+    @Test
+    void algorithmFollowsKeyTypeAndCurve() throws Exception {
+        KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+        rsa.initialize(2048);
+        assertEquals(SignatureAlgorithm.RS256, SigningKeyService.algorithmFor(rsa.generateKeyPair().getPublic()));
+        assertEquals(SignatureAlgorithm.ES256, SigningKeyService.algorithmFor(ecKey("secp256r1")));
+        assertEquals(SignatureAlgorithm.ES384, SigningKeyService.algorithmFor(ecKey("secp384r1")));
+        assertEquals(SignatureAlgorithm.ES512, SigningKeyService.algorithmFor(ecKey("secp521r1")));
+    }
+
+    private static SigningKeyService signingKeyService(String secret, String keyId) {
+        return new SigningKeyService(secret, keyStore, PASSWORD, "PKCS12", keyId);
+    }
+
+    private static String encode(SigningKeyService signingKeyService) {
+        return new JjwtCodec(signingKeyService).encode(Map.of(), UUID.randomUUID(), "user",
+                new Date(), new Date(System.currentTimeMillis() + 60_000));
+    }
+
+    private static VerifiedToken decode(SigningKeyService signingKeyService, String token) {
+        return new JjwtCodec(signingKeyService).decode(token);
+    }
+
+    private static String keyId(String token) throws Exception {
+        JsonNode header = new ObjectMapper().readTree(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))));
+        return header.hasNonNull("kid") ? header.get("kid").asText() : null;
+    }
+
+    private static Claims parse(PublicKey key, String token) {
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+    }
+
+    private static MvcResult jwks(SigningKeyService signingKeyService) throws Exception {
+        return jwksMockMvc(signingKeyService).perform(get("/.well-known/jwks.json"))
+                .andExpect(status().isOk())
+                .andReturn();
+    }
+
+    private static MockMvc jwksMockMvc(SigningKeyService signingKeyService) {
+        JwksController controller = new JwksController(signingKeyService);
+        ReflectionTestUtils.setField(controller, "maxAge", Duration.ofMinutes(5));
+        return MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    private static PublicKey publicKey(JsonNode jwk) throws Exception {
+        if ("RSA".equals(jwk.get("kty").asText())) {
+            return KeyFactory.getInstance("RSA").generatePublic(
+                    new RSAPublicKeySpec(unsigned(jwk.get("n")), unsigned(jwk.get("e"))));
+        }
+        AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+        parameters.init(new ECGenParameterSpec("secp256r1"));
+        ECPoint point = new ECPoint(unsigned(jwk.get("x")), unsigned(jwk.get("y")));
+        return KeyFactory.getInstance("EC").generatePublic(
+                new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+    }
+
+    private static BigInteger unsigned(JsonNode value) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode(value.asText()));
+    }
+
+    private static PublicKey ecKey(String curve) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec(curve));
+        return generator.generateKeyPair().getPublic();
+    }
+
+    private static void keytool(String... options) throws Exception {
+        String[] command = {Path.of(System.getProperty("java.home"), "bin", "keytool").toString(), "-genkeypair",
+                "-keystore", keyStore, "-storetype", "PKCS12", "-storepass", PASSWORD, "-keypass", PASSWORD,
+                "-dname", "CN=auth", "-validity", "1"};
+        String[] arguments = new String[command.length + options.length];
+        System.arraycopy(command, 0, arguments, 0, command.length);
+        System.arraycopy(options, 0, arguments, command.length, options.length);
+        Process process = new ProcessBuilder(arguments).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes());
+        assertEquals(0, process.waitFor(), output);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.auth.services.impl;
+
+import com.example.auth.jwt.JjwtCodec;
+import com.example.auth.metrics.AuthMetrics;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * The HS256 secret and {@link TokenService} the tests share: access tokens live 15 minutes
+ * and refresh tokens a day.
+ */
+public final class TestTokens {
+
+    public static final String SECRET = "c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0";
+
+    private TestTokens() {
+    }
+
+    public static SigningKeyService signingKeyService() {
+        return new SigningKeyService(SECRET, "", "", "PKCS12", "");
+    }
+
+    public static TokenService tokenService(AuthMetrics metrics) {
+        return tokenService(metrics, false, false);
+    }
+
+    public static TokenService tokenService(AuthMetrics metrics, boolean stateless, boolean generationRevocation) {
+        TokenService tokenService = new TokenService(metrics, new JjwtCodec(signingKeyService()));
+        ReflectionTestUtils.setField(tokenService, "accessTokenExpirationTime", "900000");
+        ReflectionTestUtils.setField(tokenService, "refreshTokenExpirationTime", "86400000");
+        ReflectionTestUtils.setField(tokenService, "stateless", stateless);
+        ReflectionTestUtils.setField(tokenService, "generationRevocation", generationRevocation);
+        return tokenService;
+    }
+}
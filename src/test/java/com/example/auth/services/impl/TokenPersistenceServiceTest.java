@@ -0,0 +1,113 @@
+package com.example.auth.services.impl;
+
+import com.example.auth.cache.PrincipalCache;
+import com.example.auth.cache.RevocationIndex;
+import com.example.auth.cache.UsernameFilter;
+import com.example.auth.invalidation.InvalidationBus;
+import com.example.auth.metrics.AuthMetrics;
+import com.example.auth.models.entities.TokenEntity;
+import com.example.auth.models.entities.UserEntity;
+import com.example.auth.models.enums.TokenType;
+import com.example.auth.models.enums.UserRole;
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.repositories.TokenRepository;
+import com.example.auth.repositories.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.hibernate5.SpringBeanContainer;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs the write-behind service against Hibernate on an in-memory H2 database.
+ */
+class TokenPersistenceServiceTest {
+
+    private LocalContainerEntityManagerFactoryBean entityManagerFactory;
+    private TokenRepository tokenRepository;
+    private TransactionTemplate transactionTemplate;
+    private TokenPersistenceService tokenPersistenceService;
+    private UserEntity user;
+
+    @BeforeEach
+    void setUp() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        InvalidationBus invalidationBus = mock(InvalidationBus.class);
+        beanFactory.registerSingleton("principalCache", mock(PrincipalCache.class));
+        beanFactory.registerSingleton("usernameFilter", mock(UsernameFilter.class));
+        beanFactory.registerSingleton("invalidationBus", invalidationBus);
+        entityManagerFactory = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactory.setDataSource(new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        entityManagerFactory.setPackagesToScan(UserEntity.class.getPackageName());
+        entityManagerFactory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactory.setJpaPropertyMap(Map.of(
+                "hibernate.hbm2ddl.auto", "create",
+                "hibernate.resource.beans.container", new SpringBeanContainer(beanFactory)));
+        entityManagerFactory.afterPropertiesSet();
+        JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory.getObject());
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory.getObject());
+        tokenRepository = new JpaRepositoryFactory(entityManager).getRepository(TokenRepository.class);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        RevocationIndex revocationIndex = new RevocationIndex(tokenRepository, mock(UserRepository.class), 1000, 900_000);
+        tokenPersistenceService = new TokenPersistenceService(tokenRepository, revocationIndex, invalidationBus,
+                new AuthMetrics(new SimpleMeterRegistry()), transactionManager, true, 50, Duration.ofMillis(10), 1,
+                Duration.ZERO, 1, Duration.ZERO);
+
+        user = new UserEntity();
+        user.setName("name");
+        user.setUsername("user");
+        user.setEmail("user@example.com");
+        user.setPassword("password");
+        user.setStatus(UserStatus.ACTIVE);
+        user.setRole(UserRole.ORDINARY);
+        transactionTemplate.executeWithoutResult(status -> entityManager.persist(user));
+    }
+
+    @AfterEach
+    void tearDown() {
+        entityManagerFactory.destroy();
+    }
+
+    /**
+     * With the queue full and no writer draining it, the token committed last is written by the
+     * committing thread from its after-completion callback.
+     */
+    @Test
+    void tokenWrittenOnFullQueueIsPersisted() {
+        ReflectionTestUtils.setField(tokenPersistenceService, "running", true);
+        tokenPersistenceService.save(token());
+        TokenEntity token = token();
+
+        transactionTemplate.executeWithoutResult(status -> tokenPersistenceService.save(token));
+
+        assertTrue(tokenRepository.findByTokenId(token.getTokenId()).isPresent());
+    }
+
+    private TokenEntity token() {
+        return TokenEntity.builder()
+                .tokenId(UUID.randomUUID())
+                .type(TokenType.BEARER)
+                .expiresAt(Instant.now().plusSeconds(900))
+                .user(user)
+                .build();
+    }
+}
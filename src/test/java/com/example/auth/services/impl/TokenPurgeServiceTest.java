@@ -0,0 +1,224 @@
+package com.example.auth.services.impl;
+
+import com.example.auth.cache.PrincipalCache;
+import com.example.auth.cache.UsernameFilter;
+import com.example.auth.invalidation.InvalidationBus;
+import com.example.auth.metrics.AuthMetrics;
+import com.example.auth.models.entities.TokenEntity;
+import com.example.auth.models.entities.UserEntity;
+import com.example.auth.models.enums.TokenType;
+import com.example.auth.models.enums.UserRole;
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.repositories.TokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.hibernate5.SpringBeanContainer;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the purge against Hibernate on an in-memory H2 database. H2 has no advisory locks, so
+ * the PostgreSQL lock is exercised with a stubbed connection.
+ */
+class TokenPurgeServiceTest {
+
+    private LocalContainerEntityManagerFactoryBean entityManagerFactory;
+    private EntityManager entityManager;
+    private DataSource dataSource;
+    private TokenRepository tokenRepository;
+    private TransactionTemplate transactionTemplate;
+    private AuthMetrics metrics;
+    private UserEntity user;
+
+    @BeforeEach
+    void setUp() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("principalCache", mock(PrincipalCache.class));
+        beanFactory.registerSingleton("usernameFilter", mock(UsernameFilter.class));
+        beanFactory.registerSingleton("invalidationBus", mock(InvalidationBus.class));
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        entityManagerFactory = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactory.setDataSource(dataSource);
+        entityManagerFactory.setPackagesToScan(UserEntity.class.getPackageName());
+        entityManagerFactory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactory.setJpaPropertyMap(Map.of(
+                "hibernate.hbm2ddl.auto", "create",
+                "hibernate.resource.beans.container", new SpringBeanContainer(beanFactory)));
+        entityManagerFactory.afterPropertiesSet();
+        JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory.getObject());
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory.getObject());
+        JpaRepositoryFactory repositoryFactory = new JpaRepositoryFactory(entityManager);
+        repositoryFactory.addRepositoryProxyPostProcessor((factory, repositoryInformation) -> factory.addAdvice(
+                new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource())));
+        tokenRepository = mock(TokenRepository.class, delegatesTo(repositoryFactory.getRepository(TokenRepository.class)));
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        metrics = new AuthMetrics(new SimpleMeterRegistry());
+
+        user = new UserEntity();
+        user.setName("name");
+        user.setUsername("user");
+        user.setEmail("user@example.com");
+        user.setPassword("password");
+        user.setStatus(UserStatus.ACTIVE);
+        user.setRole(UserRole.ORDINARY);
+        transactionTemplate.executeWithoutResult(status -> entityManager.persist(user));
+    }
+
+    @AfterEach
+    void tearDown() {
+        entityManagerFactory.destroy();
+    }
+
+    @Test
+    void expiredTokensArePurgedInKeysetChunks() {
+        Instant longExpired = Instant.now().minus(2, ChronoUnit.DAYS);
+        TokenEntity first = token(longExpired);
+        TokenEntity live = token(Instant.now().plus(1, ChronoUnit.HOURS));
+        TokenEntity second = token(longExpired);
+        TokenEntity third = token(longExpired);
+        TokenEntity fourth = token(longExpired);
+        TokenEntity fifth = token(longExpired);
+
+        assertEquals(5, purgeService(2, false).purge());
+
+        assertEquals(List.of(live.getId()), remainingIds());
+        ArgumentCaptor<Integer> lastIds = ArgumentCaptor.forClass(Integer.class);
+        verify(tokenRepository, atLeastOnce()).findPurgeableTokenIds(lastIds.capture(), any(), eq(Limit.of(2)));
+        assertEquals(List.of(0, second.getId(), fourth.getId(), fifth.getId()), lastIds.getAllValues());
+        verify(tokenRepository).deleteAllByIdIn(List.of(first.getId(), second.getId()));
+        verify(tokenRepository).deleteAllByIdIn(List.of(third.getId(), fourth.getId()));
+        verify(tokenRepository).deleteAllByIdIn(List.of(fifth.getId()));
+        assertEquals(5, metrics.getTokenPurged().count());
+    }
+
+    /**
+     * Only the expiry counts: a token is purged once it expired more than the retention ago,
+     * whether or not it was revoked.
+     */
+    @Test
+    void tokensExpiredWithinRetentionAreKept() {
+        TokenEntity pastRetention = token(Instant.now().minus(25, ChronoUnit.HOURS));
+        TokenEntity withinRetention = token(Instant.now().minus(1, ChronoUnit.HOURS));
+        TokenEntity revoked = token(Instant.now().plus(1, ChronoUnit.HOURS));
+        revoked.setRevoked(true);
+        transactionTemplate.executeWithoutResult(status -> entityManager.merge(revoked));
+
+        assertEquals(1, purgeService(1000, false).purge());
+
+        assertEquals(List.of(withinRetention.getId(), revoked.getId()), remainingIds());
+        verify(tokenRepository).deleteAllByIdIn(List.of(pastRetention.getId()));
+    }
+
+    @Test
+    void purgeIsSkippedWhileAnotherNodeHoldsTheLock() throws Exception {
+        token(Instant.now().minus(2, ChronoUnit.DAYS));
+        Connection lockConnection = postgresConnection(false);
+
+        assertEquals(0, purgeService(1000, true, lockConnection).purge());
+
+        assertEquals(1, remainingIds().size());
+        verify(tokenRepository, never()).findPurgeableTokenIds(any(), any(), any());
+        verify(lockConnection, never()).prepareStatement("SELECT pg_advisory_unlock(?)");
+        verify(lockConnection).close();
+    }
+
+    @Test
+    void lockIsReleasedAfterPurge() throws Exception {
+        token(Instant.now().minus(2, ChronoUnit.DAYS));
+        Connection lockConnection = postgresConnection(true);
+
+        assertEquals(1, purgeService(1000, true, lockConnection).purge());
+
+        assertEquals(List.of(), remainingIds());
+        verify(lockConnection).prepareStatement("SELECT pg_advisory_unlock(?)");
+        verify(lockConnection).close();
+    }
+
+    private TokenPurgeService purgeService(int chunkSize, boolean clusterLock) {
+        return purgeService(chunkSize, clusterLock, dataSource);
+    }
+
+    private TokenPurgeService purgeService(int chunkSize, boolean clusterLock, Connection lockConnection) throws Exception {
+        DataSource lockDataSource = mock(DataSource.class);
+        when(lockDataSource.getConnection()).thenReturn(lockConnection);
+        return purgeService(chunkSize, clusterLock, lockDataSource);
+    }
+
+    private TokenPurgeService purgeService(int chunkSize, boolean clusterLock, DataSource dataSource) {
+        TokenPurgeService purgeService = new TokenPurgeService(tokenRepository, dataSource, metrics);
+        ReflectionTestUtils.setField(purgeService, "retention", Duration.ofDays(1));
+        ReflectionTestUtils.setField(purgeService, "chunkSize", chunkSize);
+        ReflectionTestUtils.setField(purgeService, "chunkPause", Duration.ZERO);
+        ReflectionTestUtils.setField(purgeService, "clusterLock", clusterLock);
+        return purgeService;
+    }
+
+    /**
+     * A PostgreSQL connection on which {@code pg_try_advisory_lock} returns {@code acquired}.
+     */
+    private static Connection postgresConnection(boolean acquired) throws Exception {
+        Connection connection = mock(Connection.class);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(connection.getMetaData()).thenReturn(metaData);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean(1)).thenReturn(acquired);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        return connection;
+    }
+
+    private TokenEntity token(Instant expiresAt) {
+        TokenEntity token = TokenEntity.builder()
+                .tokenId(UUID.randomUUID())
+                .type(TokenType.BEARER)
+                .expiresAt(expiresAt)
+                .user(user)
+                .build();
+        transactionTemplate.executeWithoutResult(status -> entityManager.persist(token));
+        return token;
+    }
+
+    private List<Integer> remainingIds() {
+        return tokenRepository.findAll().stream().map(TokenEntity::getId).sorted().toList();
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.auth.services.impl;
+
+import com.example.auth.cache.RevocationIndex;
+import com.example.auth.config.JwtAuthenticationFilter;
+import com.example.auth.invalidation.InvalidationBus;
+import com.example.auth.invalidation.InvalidationEvent;
+import com.example.auth.metrics.AuthMetrics;
+import com.example.auth.metrics.StartupTimer;
+import com.example.auth.models.entities.UserEntity;
+import com.example.auth.models.enums.UserRole;
+import com.example.auth.models.enums.UserStatus;
+import com.example.auth.models.principals.UserPrincipal;
+import com.example.auth.models.requests.ChangePasswordRequest;
+import com.example.auth.models.tokens.IssuedToken;
+import com.example.auth.repositories.TokenRepository;
+import com.example.auth.repositories.UserRepository;
+import com.example.auth.services.ITokenPersistenceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Stateless access tokens are checked against their own claims, so a password change has to
+ * revoke them explicitly.
+ */
+class UserServiceTest {
+
+    private final TokenRepository tokenRepository = mock(TokenRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+    private final InvalidationBus invalidationBus = mock(InvalidationBus.class);
+    private final RevocationIndex revocationIndex = new RevocationIndex(tokenRepository, userRepository, 1000, 900_000);
+    private TokenService tokenService;
+    private AuthService authService;
+    private UserService userService;
+    private JwtAuthenticationFilter filter;
+    private UserEntity user;
+
+    @BeforeEach
+    void setUp() {
+        AuthMetrics metrics = new AuthMetrics(new SimpleMeterRegistry());
+        tokenService = TestTokens.tokenService(metrics, true, false);
+        authService = new AuthService(userRepository, passwordEncoder, tokenService, mock(AuthenticationManager.class),
+                tokenRepository, revocationIndex, mock(ITokenPersistenceService.class), metrics, invalidationBus,
+                mock(TransactionTemplate.class), mock(StartupTimer.class));
+        userService = new UserService(passwordEncoder, userRepository, authService);
+        filter = new JwtAuthenticationFilter(tokenService, mock(UserDetailsService.class), revocationIndex, metrics);
+
+        user = new UserEntity();
+        user.setId(1);
+        user.setUsername("user");
+        user.setPassword("encoded");
+        user.setStatus(UserStatus.ACTIVE);
+        user.setRole(UserRole.ORDINARY);
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches("Current#1", "encoded")).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void passwordChangeRevokesStatelessAccessTokens() throws Exception {
+        IssuedToken accessToken = tokenService.issueAccessToken(UserPrincipal.of(user));
+        when(tokenRepository.findAllValidTokenByUser(1)).thenReturn(List.of(expiry(accessToken)));
+        assertAuthenticated(accessToken, true);
+
+        changePassword();
+
+        assertAuthenticated(accessToken, false);
+        assertEquals(1, user.getCredentialVersion());
+        verify(tokenRepository).revokeAllValidTokenByUser(1);
+        verify(invalidationBus).publish(InvalidationEvent.tokenRevoked(accessToken.getId(),
+                accessToken.getExpiration().toInstant()));
+        verify(userRepository).save(user);
+    }
+
+    @Test
+    void passwordChangeBumpsTokenGeneration() throws Exception {
+        ReflectionTestUtils.setField(tokenService, "generationRevocation", true);
+        ReflectionTestUtils.setField(authService, "generationRevocation", true);
+        IssuedToken accessToken = tokenService.issueAccessToken(UserPrincipal.of(user));
+        assertAuthenticated(accessToken, true);
+
+        changePassword();
+
+        assertAuthenticated(accessToken, false);
+        assertEquals(1, user.getTokenGeneration());
+        verify(invalidationBus).publish(InvalidationEvent.userTokensBumped(1, 1));
+        verify(userRepository).save(user);
+    }
+
+    private void changePassword() {
+        ChangePasswordRequest request = new ChangePasswordRequest();
+        request.setCurrentPassword("Current#1");
+        request.setNewPassword("Changed#1");
+        request.setConfirmPassword("Changed#1");
+        Principal principal = () -> "user";
+        userService.changePassword(request, principal);
+    }
+
+    private void assertAuthenticated(IssuedToken token, boolean authenticated) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token.getValue());
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        if (authenticated) {
+            assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        } else {
+            assertNull(SecurityContextHolder.getContext().getAuthentication());
+        }
+    }
+
+    private static TokenRepository.TokenExpiry expiry(IssuedToken token) {
+        return new TokenRepository.TokenExpiry() {
+            @Override
+            public UUID getTokenId() {
+                return token.getId();
+            }
+
+            @Override
+            public Instant getExpiresAt() {
+                return token.getExpiration().toInstant();
+            }
+        };
+    }
+}